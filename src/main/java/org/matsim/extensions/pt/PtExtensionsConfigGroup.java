@@ -33,11 +33,67 @@ import org.matsim.core.config.ReflectiveConfigGroup;
 public class PtExtensionsConfigGroup extends ReflectiveConfigGroup {
 	public static final String GROUP_NAME = "ptExtensions" ;
 
+	private static final String LEG_COST_CACHE_DISTANCE_BIN_SIZE = "intermodalAccessEgressLegCostCacheDistanceBinSize_m";
+	private static final String LEG_COST_CACHE_TRAVEL_TIME_BIN_SIZE = "intermodalAccessEgressLegCostCacheTravelTimeBinSize_s";
+	private static final String DETERMINISTIC_RANDOMIZATION = "deterministicIntermodalAccessEgressRandomization";
+
 	public PtExtensionsConfigGroup() {
 		super(GROUP_NAME);
 	}
 	
 	private Map<String, IntermodalAccessEgressModeUtilityRandomization> intermodalAccessEgressMode2utilityRandomization = new HashMap<>();
+	private double intermodalAccessEgressLegCostCacheDistanceBinSize_m = 0.;
+	private double intermodalAccessEgressLegCostCacheTravelTimeBinSize_s = 0.;
+	private boolean deterministicIntermodalAccessEgressRandomization = false;
+
+	@StringGetter(DETERMINISTIC_RANDOMIZATION)
+	public boolean isDeterministicIntermodalAccessEgressRandomization() {
+		return deterministicIntermodalAccessEgressRandomization;
+	}
+
+	@StringSetter(DETERMINISTIC_RANDOMIZATION)
+	public void setDeterministicIntermodalAccessEgressRandomization(boolean deterministicIntermodalAccessEgressRandomization) {
+		this.deterministicIntermodalAccessEgressRandomization = deterministicIntermodalAccessEgressRandomization;
+	}
+
+	@StringGetter(LEG_COST_CACHE_DISTANCE_BIN_SIZE)
+	public double getIntermodalAccessEgressLegCostCacheDistanceBinSize_m() {
+		return intermodalAccessEgressLegCostCacheDistanceBinSize_m;
+	}
+
+	@StringSetter(LEG_COST_CACHE_DISTANCE_BIN_SIZE)
+	public void setIntermodalAccessEgressLegCostCacheDistanceBinSize_m(double intermodalAccessEgressLegCostCacheDistanceBinSize_m) {
+		this.intermodalAccessEgressLegCostCacheDistanceBinSize_m = intermodalAccessEgressLegCostCacheDistanceBinSize_m;
+	}
+
+	@StringGetter(LEG_COST_CACHE_TRAVEL_TIME_BIN_SIZE)
+	public double getIntermodalAccessEgressLegCostCacheTravelTimeBinSize_s() {
+		return intermodalAccessEgressLegCostCacheTravelTimeBinSize_s;
+	}
+
+	@StringSetter(LEG_COST_CACHE_TRAVEL_TIME_BIN_SIZE)
+	public void setIntermodalAccessEgressLegCostCacheTravelTimeBinSize_s(double intermodalAccessEgressLegCostCacheTravelTimeBinSize_s) {
+		this.intermodalAccessEgressLegCostCacheTravelTimeBinSize_s = intermodalAccessEgressLegCostCacheTravelTimeBinSize_s;
+	}
+
+	public boolean isIntermodalAccessEgressLegCostCacheEnabled() {
+		return intermodalAccessEgressLegCostCacheDistanceBinSize_m > 0. && intermodalAccessEgressLegCostCacheTravelTimeBinSize_s > 0.;
+	}
+
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> map = super.getComments();
+		map.put(LEG_COST_CACHE_DISTANCE_BIN_SIZE, "If this and the travel time bin size are > 0, the deterministic part of the disutility of intermodal "
+				+ "access/egress legs is cached by scoring parameters, mode, distance and travel time, with distance and travel time rounded "
+				+ "to the nearest multiple of the bin size. Randomization is applied on top. Only used if the scoring parameters are "
+				+ "defined per subpopulation (the default SubpopulationScoringParameters), not with person-specific scoring parameters. "
+				+ "Default 0 (disabled).");
+		map.put(LEG_COST_CACHE_TRAVEL_TIME_BIN_SIZE, "See " + LEG_COST_CACHE_DISTANCE_BIN_SIZE + ".");
+		map.put(DETERMINISTIC_RANDOMIZATION, "If true, the intermodal access/egress utility randomization is derived from the global random seed, the "
+				+ "iteration, the person, the trip (by its departure time), the direction and the mode (and the stop for the randomization not frozen "
+				+ "per direction and mode) instead of a random number stream, so routing results do not depend on the number of threads. Default false.");
+		return map;
+	}
 	
     public void addIntermodalAccessEgressModeUtilityRandomization(IntermodalAccessEgressModeUtilityRandomization paramSet) {
         this.intermodalAccessEgressMode2utilityRandomization.put(paramSet.getAccessEgressMode(), paramSet);
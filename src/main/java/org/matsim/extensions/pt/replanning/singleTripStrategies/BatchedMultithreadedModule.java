@@ -0,0 +1,267 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.replanning.modules.AbstractMultithreadedModule;
+import org.matsim.core.replanning.modules.PlanStrategyModule;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replacement for {@link AbstractMultithreadedModule} for plan algorithms with very different run times per plan, e.g.
+ * intermodal pt routing. Instead of assigning plans to threads round-robin in advance, the worker threads claim small
+ * batches of plans from the shared list of plans collected in {@link #handlePlan} until all plans are handled, so a
+ * thread which got cheap plans continues with the plans left over by the others. Each worker uses its own
+ * {@link PlanAlgorithm} from {@link #getPlanAlgoInstance(Random)}.
+ *
+ * Which worker handles which plan depends on thread scheduling, so the plan algorithms must not draw from a random
+ * number stream per worker. Instead, the {@link Random} given to each plan algorithm is reseeded before every plan from
+ * the global random seed, the iteration, the module and the person, so the replanned plans are the same for every
+ * number of threads and in every run with the same seed.
+ *
+ * Optionally, replanning per iteration is limited by a wall-clock and/or router call budget, see
+ * {@link SingleTripStrategiesConfigGroup}. Plans are then handled in the configured priority order and the plans left
+ * when the budget is exhausted stay unchanged, i.e. remain copies of the plan they were created from. Which plans are
+ * cut off by a budget is not reproducible, except for a router call budget with a single thread.
+ *
+ * Logs the number of plans and the busy time per worker after each replanning.
+ *
+ * @author vsp-gleich
+ */
+public abstract class BatchedMultithreadedModule implements PlanStrategyModule {
+
+	private static final Logger log = LogManager.getLogger(BatchedMultithreadedModule.class);
+
+	private final int numberOfThreads;
+	private final long randomSeed;
+	private final int batchSize;
+	private final double timeBudget_s;
+	private final long routerCallBudget;
+	private final SingleTripStrategiesConfigGroup.ReplanningPriority priority;
+	private final List<Plan> plans = new ArrayList<>();
+	private ReplanningContext replanningContext;
+
+	protected BatchedMultithreadedModule(GlobalConfigGroup globalConfigGroup, int batchSize) {
+		this(globalConfigGroup, batchSize, 0., 0, SingleTripStrategiesConfigGroup.ReplanningPriority.handlingOrder);
+	}
+
+	protected BatchedMultithreadedModule(GlobalConfigGroup globalConfigGroup, SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup) {
+		this(globalConfigGroup, singleTripStrategiesConfigGroup.getReplanningBatchSize(), singleTripStrategiesConfigGroup.getReplanningTimeBudget_s(),
+				singleTripStrategiesConfigGroup.getReplanningRouterCallBudget(), singleTripStrategiesConfigGroup.getReplanningPriority());
+	}
+
+	private BatchedMultithreadedModule(GlobalConfigGroup globalConfigGroup, int batchSize, double timeBudget_s, long routerCallBudget,
+									   SingleTripStrategiesConfigGroup.ReplanningPriority priority) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batch size must be at least 1: " + batchSize);
+		}
+		this.numberOfThreads = globalConfigGroup.getNumberOfThreads();
+		this.randomSeed = globalConfigGroup.getRandomSeed();
+		this.batchSize = batchSize;
+		this.timeBudget_s = timeBudget_s;
+		this.routerCallBudget = routerCallBudget;
+		this.priority = priority;
+	}
+
+	/**
+	 * @param rnd the only source of randomness the plan algorithm may use, reseeded before each plan
+	 */
+	public abstract PlanAlgorithm getPlanAlgoInstance(Random rnd);
+
+	/**
+	 * @return number of router calls since the last replanning, checked against the router call budget
+	 */
+	protected long getRouterCalls() {
+		return 0;
+	}
+
+	protected void afterFinishReplanningHook() {
+	}
+
+	protected final ReplanningContext getReplanningContext() {
+		return replanningContext;
+	}
+
+	@Override
+	public final void prepareReplanning(ReplanningContext replanningContext) {
+		this.replanningContext = replanningContext;
+		this.plans.clear();
+	}
+
+	@Override
+	public final void handlePlan(Plan plan) {
+		plans.add(plan);
+	}
+
+	@Override
+	public final void finishReplanning() {
+		if (priority == SingleTripStrategiesConfigGroup.ReplanningPriority.lowestScoreFirst) {
+			sortLowestScoreFirst();
+		}
+		runWorkers();
+		plans.clear();
+		afterFinishReplanningHook();
+	}
+
+	/**
+	 * Plans of persons whose best other plan has the lowest score first, persons without scored plans before all others.
+	 */
+	private void sortLowestScoreFirst() {
+		record PlanWithPriority(Plan plan, double bestOtherScore) {
+		}
+		List<PlanWithPriority> plansWithPriority = new ArrayList<>(plans.size());
+		for (Plan plan : plans) {
+			double bestOtherScore = Double.NEGATIVE_INFINITY;
+			for (Plan otherPlan : plan.getPerson().getPlans()) {
+				if (otherPlan != plan && otherPlan.getScore() != null) {
+					bestOtherScore = Math.max(bestOtherScore, otherPlan.getScore());
+				}
+			}
+			plansWithPriority.add(new PlanWithPriority(plan, bestOtherScore));
+		}
+		plansWithPriority.sort(Comparator.comparingDouble(PlanWithPriority::bestOtherScore));
+		plans.clear();
+		plansWithPriority.forEach(planWithPriority -> plans.add(planWithPriority.plan()));
+	}
+
+	private void runWorkers() {
+		long start = System.nanoTime();
+		long deadline = timeBudget_s > 0. ? start + (long) (timeBudget_s * 1e9) : Long.MAX_VALUE;
+		long routerCallsBefore = getRouterCalls();
+		int nWorkers = Math.max(1, Math.min(numberOfThreads, (plans.size() + batchSize - 1) / batchSize));
+		AtomicInteger nextBatchStart = new AtomicInteger();
+		AtomicReference<Throwable> firstException = new AtomicReference<>();
+		Worker[] workers = new Worker[nWorkers];
+		long iterationSeed = TripFingerprint.mix(TripFingerprint.mix(randomSeed, getClass().getName().hashCode()),
+				replanningContext == null ? 0 : replanningContext.getIteration());
+		for (int i = 0; i < nWorkers; i++) {
+			Random rnd = new Random();
+			workers[i] = new Worker(getPlanAlgoInstance(rnd), rnd, iterationSeed, nextBatchStart, firstException, deadline, routerCallsBefore);
+		}
+
+		String[] names = new String[nWorkers];
+		if (numberOfThreads == 0) {
+			// like AbstractMultithreadedModule, run in the main thread
+			names[0] = Thread.currentThread().getName();
+			workers[0].run();
+		} else {
+			Thread[] threads = new Thread[nWorkers];
+			for (int i = 0; i < nWorkers; i++) {
+				threads[i] = new Thread(workers[i], getClass().getSimpleName() + "." + i);
+				threads[i].setDaemon(true);
+				names[i] = threads[i].getName();
+				threads[i].start();
+			}
+			try {
+				for (Thread thread : threads) {
+					thread.join();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		double wallTime_s = (System.nanoTime() - start) / 1e9;
+
+		int handledPlans = 0;
+		for (int i = 0; i < nWorkers; i++) {
+			log.info(names[i] + ": " + workers[i].handledPlans + " plans, busy " + workers[i].busyNanos / 1e9 + "s of " + wallTime_s + "s");
+			handledPlans += workers[i].handledPlans;
+		}
+		if (firstException.get() != null) {
+			throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", firstException.get());
+		}
+		if (handledPlans < plans.size()) {
+			log.warn(getClass().getSimpleName() + ": replanning budget exhausted after " + wallTime_s + "s and "
+					+ (getRouterCalls() - routerCallsBefore) + " router calls, " + (plans.size() - handledPlans) + " of "
+					+ plans.size() + " plans were left unchanged.");
+		}
+	}
+
+	private final class Worker implements Runnable {
+		private final PlanAlgorithm planAlgo;
+		private final Random rnd;
+		private final long iterationSeed;
+		private final AtomicInteger nextBatchStart;
+		private final AtomicReference<Throwable> firstException;
+		private final long deadline;
+		private final long routerCallsBefore;
+		private int handledPlans = 0;
+		private long busyNanos = 0;
+
+		private Worker(PlanAlgorithm planAlgo, Random rnd, long iterationSeed, AtomicInteger nextBatchStart,
+					   AtomicReference<Throwable> firstException, long deadline, long routerCallsBefore) {
+			this.planAlgo = planAlgo;
+			this.rnd = rnd;
+			this.iterationSeed = iterationSeed;
+			this.nextBatchStart = nextBatchStart;
+			this.firstException = firstException;
+			this.deadline = deadline;
+			this.routerCallsBefore = routerCallsBefore;
+		}
+
+		private long getPlanSeed(Plan plan) {
+			Person person = plan.getPerson();
+			return TripFingerprint.mix(iterationSeed, person == null ? 0 : person.getId().toString().hashCode());
+		}
+
+		private boolean isBudgetExhausted() {
+			return System.nanoTime() > deadline || (routerCallBudget > 0 && getRouterCalls() - routerCallsBefore >= routerCallBudget);
+		}
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			try {
+				int batchStart;
+				while (firstException.get() == null && (batchStart = nextBatchStart.getAndAdd(batchSize)) < plans.size()) {
+					int batchEnd = Math.min(batchStart + batchSize, plans.size());
+					for (int i = batchStart; i < batchEnd; i++) {
+						if (isBudgetExhausted()) {
+							// leave this and all following plans unchanged
+							nextBatchStart.set(plans.size());
+							return;
+						}
+						rnd.setSeed(getPlanSeed(plans.get(i)));
+						planAlgo.run(plans.get(i));
+						handledPlans++;
+					}
+				}
+			} catch (Throwable t) {
+				firstException.compareAndSet(null, t);
+				log.error("replanning crashed in thread " + Thread.currentThread().getName(), t);
+			} finally {
+				busyNanos = System.nanoTime() - start;
+			}
+		}
+	}
+}
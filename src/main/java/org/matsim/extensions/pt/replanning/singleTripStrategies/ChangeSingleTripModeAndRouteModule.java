@@ -25,43 +25,76 @@ import javax.inject.Provider;
 import org.matsim.core.config.groups.ChangeModeConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.controler.Controler;
-import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
-import org.matsim.core.replanning.modules.AbstractMultithreadedModule;
 import org.matsim.core.router.TripRouter;
 import org.matsim.core.utils.timing.TimeInterpretation;
 import org.matsim.facilities.ActivityFacilities;
 
+import java.util.Random;
+
 /**
  * Uses the routing algorithm provided by the {@linkplain Controler} for 
  * calculating the routes of plans during Replanning.
  *
  * @author mrieser
  */
-public class ChangeSingleTripModeAndRouteModule extends AbstractMultithreadedModule {
+public class ChangeSingleTripModeAndRouteModule extends BatchedMultithreadedModule {
 
 	private ActivityFacilities facilities;
 
 	private final Provider<TripRouter> tripRouterProvider;
+	private final ReplannedTripsCounter replannedTripsCounter = new ReplannedTripsCounter("ChangeSingleTripModeAndRoute");
+	private RouteStore routeStore = RouteStore.DISABLED;
 	private final ChangeModeConfigGroup changeModeConfigGroup;
+	private final SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup;
 	private final TimeInterpretation timeInterpretation;
+	private final TripSelector tripSelector;
 
 	public ChangeSingleTripModeAndRouteModule(ActivityFacilities facilities, Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup, ChangeModeConfigGroup changeModeConfigGroup, TimeInterpretation timeInterpretation) {
-		super(globalConfigGroup);
+		this(facilities, tripRouterProvider, globalConfigGroup, changeModeConfigGroup, new SingleTripStrategiesConfigGroup(), TripSelector.UNIFORM, timeInterpretation);
+	}
+
+	public ChangeSingleTripModeAndRouteModule(ActivityFacilities facilities, Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup, ChangeModeConfigGroup changeModeConfigGroup,
+											  SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup, TripSelector tripSelector, TimeInterpretation timeInterpretation) {
+		super(globalConfigGroup, singleTripStrategiesConfigGroup);
+		this.tripSelector = tripSelector;
 		this.facilities = facilities;
 		this.tripRouterProvider = tripRouterProvider;
 		this.changeModeConfigGroup = changeModeConfigGroup;
+		this.singleTripStrategiesConfigGroup = singleTripStrategiesConfigGroup;
 		this.timeInterpretation = timeInterpretation;
 	}
 
+	/**
+	 * @param routeStore store the plan algorithms consult before routing a trip
+	 */
+	public void setRouteStore(RouteStore routeStore) {
+		this.routeStore = routeStore;
+	}
+
 	@Override
-	public final PlanAlgorithm getPlanAlgoInstance() {
-			return new ChangeSingleTripModeAndRoutePlanRouter(
+	public final PlanAlgorithm getPlanAlgoInstance(Random rnd) {
+			ChangeSingleTripModeAndRoutePlanRouter planAlgo = new ChangeSingleTripModeAndRoutePlanRouter(
 					tripRouterProvider.get(),
 					facilities,
-					MatsimRandom.getLocalInstance(),
+					rnd,
 					changeModeConfigGroup,
+					singleTripStrategiesConfigGroup,
+					tripSelector,
 					timeInterpretation);
+			planAlgo.setReplannedTripsCounter(replannedTripsCounter);
+			planAlgo.setRouteStore(routeStore);
+			return planAlgo;
+	}
+
+	@Override
+	protected long getRouterCalls() {
+		return replannedTripsCounter.getRouterCalls();
+	}
+
+	@Override
+	protected void afterFinishReplanningHook() {
+		replannedTripsCounter.logAndReset();
 	}
 
 }
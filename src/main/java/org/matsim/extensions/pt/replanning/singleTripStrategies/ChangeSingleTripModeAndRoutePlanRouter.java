@@ -25,7 +25,6 @@ import java.util.List;
 import java.util.Random;
 
 import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
@@ -53,11 +52,15 @@ import org.matsim.vehicles.Vehicle;
  */
 public class ChangeSingleTripModeAndRoutePlanRouter implements PlanAlgorithm, PersonAlgorithm {
 	private final Random rnd;
+	private final TripSelector tripSelector;
+	private ReplannedTripsCounter replannedTripsCounter = new ReplannedTripsCounter("ChangeSingleTripModeAndRoutePlanRouter");
+	private RouteStore routeStore = RouteStore.DISABLED;
 	private final TripRouter tripRouter;
 	private final ActivityFacilities facilities;
 	private final TimeInterpretation timeInterpretation;
 
 	private String[] possibleModes;
+	private final ModeSampler modeSampler;
 	private boolean ignoreCarAvailability;
 	private boolean allowSwitchFromListedModesOnly;
 	private final List<String> possibleFromModes = new ArrayList<>();
@@ -75,10 +78,27 @@ public class ChangeSingleTripModeAndRoutePlanRouter implements PlanAlgorithm, Pe
 			final Random rnd,
 			final ChangeModeConfigGroup changeModeConfigGroup,
 			TimeInterpretation timeInterpretation) {
+		this(tripRouter, facilities, rnd, changeModeConfigGroup, new SingleTripStrategiesConfigGroup(), TripSelector.UNIFORM, timeInterpretation);
+	}
+
+	/**
+	 * Initialises an instance choosing the trip by the given {@link TripSelector} and the new mode with the mode weights
+	 * of the given {@link SingleTripStrategiesConfigGroup}.
+	 */
+	public ChangeSingleTripModeAndRoutePlanRouter(
+			final TripRouter tripRouter,
+			final ActivityFacilities facilities,
+			final Random rnd,
+			final ChangeModeConfigGroup changeModeConfigGroup,
+			final SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup,
+			final TripSelector tripSelector,
+			TimeInterpretation timeInterpretation) {
 		this.tripRouter = tripRouter;
 		this.facilities = facilities;
 		this.rnd = rnd;
+		this.tripSelector = tripSelector;
 		this.possibleModes = changeModeConfigGroup.getModes();
+		this.modeSampler = new ModeSampler(possibleModes, singleTripStrategiesConfigGroup.getModeWeights());
 		this.ignoreCarAvailability = changeModeConfigGroup.getIgnoreCarAvailability();
 		this.timeInterpretation = timeInterpretation;
 		
@@ -102,67 +122,42 @@ public class ChangeSingleTripModeAndRoutePlanRouter implements PlanAlgorithm, Pe
 			}
 		}
 		
-		final List<Trip> trips = TripStructureUtils.getTrips( plan );
+		final PlanTripIndex trips = PlanTripIndex.of( plan );
 
-		if (trips.size() > 0) {
-			int rndIdx = this.rnd.nextInt(trips.size());
-			Trip oldTrip = trips.get(rndIdx);
+		if (trips.getNumberOfTrips() > 0) {
+			int rndIdx = this.tripSelector.selectTrip(plan, trips.getNumberOfTrips(), this.rnd);
+			Trip oldTrip = trips.getTrip(rndIdx);
 			
 			String oldTripMainMode = TripStructureUtils.identifyMainMode( oldTrip.getTripElements() );
 			String newTripMainMode = null;
-			if (allowSwitchFromListedModesOnly) {
-				if (this.possibleFromModes.contains(oldTripMainMode)) {
-					// choose a new trip mode
-					newTripMainMode = chooseModeOtherThan(oldTripMainMode, forbidCar);
-				} else {
-					// keep the old trip mode
-					newTripMainMode = oldTripMainMode;
-				}
+			if (allowSwitchFromListedModesOnly && !this.possibleFromModes.contains(oldTripMainMode)) {
+				// keep the old trip mode
+				newTripMainMode = oldTripMainMode;
+			} else {
+				// choose a new trip mode, keeps the old one if there is no other mode available
+				newTripMainMode = this.modeSampler.sample(oldTripMainMode, forbidCar, this.rnd);
 			}
 			final List<? extends PlanElement> newTrip =
-					tripRouter.calcRoute(
+					routeStore.calcRoute(
+							tripRouter,
+							replannedTripsCounter,
 							newTripMainMode,
 							FacilitiesUtils.toFacility( oldTrip.getOriginActivity(), facilities ),
 							FacilitiesUtils.toFacility( oldTrip.getDestinationActivity(), facilities ),
-							timeInterpretation.decideOnActivityEndTimeAlongPlan( oldTrip.getOriginActivity() , plan).seconds(),
+							trips.getDepartureTime(rndIdx, timeInterpretation),
 							plan.getPerson(),
 							oldTrip.getTripAttributes()); //not sure whether this should be oldTrip.getOriginActivity().getAttributes()
 						
 			putVehicleFromOldTripIntoNewTripIfMeaningful(oldTrip, newTrip);
-			TripRouter.insertTrip(
-					plan, 
-					oldTrip.getOriginActivity(),
-					newTrip,
-					oldTrip.getDestinationActivity());
-		}
-	}
-	
-	private String chooseModeOtherThan(final String currentMode, final boolean forbidCar) {
-		String newMode;
-		while (true) {
-			int newModeIdx = this.rnd.nextInt(this.possibleModes.length - 1);
-			for (int i = 0; i <= newModeIdx; i++) {
-				if (this.possibleModes[i].equals(currentMode)) {
-					/* if the new Mode is after the currentMode in the list of possible
-					 * modes, go one further, as we have to ignore the current mode in
-					 * the list of possible modes. */
-					newModeIdx++;
-					break;
-				}
-			}
-			newMode = this.possibleModes[newModeIdx];
-			if (!(forbidCar && TransportMode.car.equals(newMode))) {
-				break;
-			} else {
-				if (this.possibleModes.length == 2) {
-					newMode = currentMode; // there is no other mode available
-					break;
-				}
+			// keep the old plan elements if nothing changed
+			boolean unchanged = TripFingerprint.isUnchanged(oldTrip.getTripElements(), newTrip);
+			replannedTripsCounter.record(unchanged);
+			if (!unchanged) {
+				trips.replaceTrip(rndIdx, newTrip);
 			}
 		}
-		return newMode;
 	}
-
+	
 	/**
 	 * If the old trip had vehicles set in its network routes, and it used a single vehicle,
 	 * and if the new trip does not come with vehicles set in its network routes,
@@ -196,6 +191,20 @@ public class ChangeSingleTripModeAndRoutePlanRouter implements PlanAlgorithm, Pe
 		return vehicleId;
 	}
 
+	/**
+	 * @param replannedTripsCounter counter shared with the other instances of the same replanning module
+	 */
+	void setReplannedTripsCounter(ReplannedTripsCounter replannedTripsCounter) {
+		this.replannedTripsCounter = replannedTripsCounter;
+	}
+
+	/**
+	 * @param routeStore store consulted before routing a trip
+	 */
+	void setRouteStore(RouteStore routeStore) {
+		this.routeStore = routeStore;
+	}
+
 	@Override
 	public void run(final Person person) {
 		for (Plan plan : person.getPlans()) {
@@ -0,0 +1,123 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.matsim.api.core.v01.TransportMode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Chooses a mode other than the current one among the possible modes, with probabilities proportional to the mode
+ * weights. One alias table (Walker/Vose) is precomputed per combination of current mode and car availability, so each
+ * draw takes constant time and unavailable modes are never drawn. With uniform weights a single random int is drawn.
+ *
+ * @author vsp-gleich
+ */
+final class ModeSampler {
+
+	/**
+	 * Alias table over the candidate modes, null if all weights are equal
+	 */
+	private record AliasTable(String[] modes, double[] probability, int[] alias) {
+	}
+
+	private final String[] possibleModes;
+	private final Map<String, Integer> mode2Index = new HashMap<>();
+	// [index of current mode, possibleModes.length for other modes][car forbidden ? 1 : 0]
+	private final AliasTable[][] aliasTables;
+
+	ModeSampler(String[] possibleModes, Map<String, Double> modeWeights) {
+		this.possibleModes = possibleModes;
+		for (int i = 0; i < possibleModes.length; i++) {
+			mode2Index.put(possibleModes[i], i);
+		}
+		this.aliasTables = new AliasTable[possibleModes.length + 1][2];
+		for (int currentModeIndex = 0; currentModeIndex <= possibleModes.length; currentModeIndex++) {
+			for (int forbidCar = 0; forbidCar < 2; forbidCar++) {
+				List<String> candidates = new ArrayList<>();
+				List<Double> weights = new ArrayList<>();
+				for (int i = 0; i < possibleModes.length; i++) {
+					if (i == currentModeIndex || (forbidCar == 1 && TransportMode.car.equals(possibleModes[i]))) {
+						continue;
+					}
+					double weight = modeWeights.getOrDefault(possibleModes[i], 1.);
+					if (weight > 0.) {
+						candidates.add(possibleModes[i]);
+						weights.add(weight);
+					}
+				}
+				aliasTables[currentModeIndex][forbidCar] = candidates.isEmpty() ? null : createAliasTable(candidates, weights);
+			}
+		}
+	}
+
+	private static AliasTable createAliasTable(List<String> candidates, List<Double> weights) {
+		int n = candidates.size();
+		double sum = weights.stream().mapToDouble(Double::doubleValue).sum();
+		double[] probability = new double[n];
+		int[] alias = new int[n];
+		Deque<Integer> small = new ArrayDeque<>();
+		Deque<Integer> large = new ArrayDeque<>();
+		double[] scaled = new double[n];
+		for (int i = 0; i < n; i++) {
+			scaled[i] = weights.get(i) * n / sum;
+			alias[i] = i;
+			(scaled[i] < 1. ? small : large).add(i);
+		}
+		while (!small.isEmpty() && !large.isEmpty()) {
+			int s = small.poll();
+			int l = large.poll();
+			probability[s] = scaled[s];
+			alias[s] = l;
+			scaled[l] = scaled[l] + scaled[s] - 1.;
+			(scaled[l] < 1. ? small : large).add(l);
+		}
+		// remaining entries are 1 up to rounding
+		for (int i : large) {
+			probability[i] = 1.;
+		}
+		for (int i : small) {
+			probability[i] = 1.;
+		}
+		return new AliasTable(candidates.toArray(new String[0]), probability, alias);
+	}
+
+	/**
+	 * @return a mode other than the current mode, or the current mode if there is no other mode available
+	 */
+	String sample(String currentMode, boolean forbidCar, Random rnd) {
+		Integer currentModeIndex = mode2Index.get(currentMode);
+		AliasTable table = aliasTables[currentModeIndex == null ? possibleModes.length : currentModeIndex][forbidCar ? 1 : 0];
+		if (table == null) {
+			return currentMode;
+		}
+		int i = rnd.nextInt(table.modes().length);
+		if (table.probability()[i] < 1. && rnd.nextDouble() >= table.probability()[i]) {
+			i = table.alias()[i];
+		}
+		return table.modes()[i];
+	}
+}
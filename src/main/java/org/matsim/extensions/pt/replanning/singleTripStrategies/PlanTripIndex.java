@@ -0,0 +1,175 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.router.StageActivityTypeIdentifier;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.router.TripStructureUtils.Trip;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.core.utils.timing.TimeInterpretation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plan element offsets of the origin and destination activity of each trip of a plan. Computed by a single scan of the
+ * plan without allocating {@link Trip}s and updated in place when a trip is replaced by {@link #replaceTrip}, so picking
+ * and replacing trips does not re-scan the plan.
+ *
+ * The time along the plan at the start of each trip's origin activity is cached as well, so departure times are looked
+ * up without walking the plan from its beginning, and after replacing a trip only the times of the following trips are
+ * recomputed, see {@link #getDepartureTime}.
+ *
+ * Only valid while the plan is changed through this index, so it is built per replanning of a plan and not kept with
+ * the plan: other strategies may change activity times in place without changing the plan structure.
+ *
+ * @author vsp-gleich
+ */
+final class PlanTripIndex {
+
+	private final Plan plan;
+	private final Activity[] originActivities;
+	private final Activity[] destinationActivities;
+	private final int[] originIndices;
+	private final int[] destinationIndices;
+	private final int numberOfTrips;
+	// time along the plan when the origin activity of each trip starts, NaN if undefined; valid for the first trips only
+	private final double[] originActivityStartTimes;
+	private int numberOfValidStartTimes = 0;
+	private TimeInterpretation startTimesInterpretation = null;
+
+	private PlanTripIndex(Plan plan) {
+		this.plan = plan;
+		List<PlanElement> planElements = plan.getPlanElements();
+		// at most every second plan element starts a trip
+		int maxTrips = planElements.size() / 2;
+		Activity[] originActivities = new Activity[maxTrips];
+		Activity[] destinationActivities = new Activity[maxTrips];
+		int[] originIndices = new int[maxTrips];
+		int[] destinationIndices = new int[maxTrips];
+		int nTrips = 0;
+		int lastMainActivityIndex = -1;
+		for (int i = 0; i < planElements.size(); i++) {
+			if (planElements.get(i) instanceof Activity activity && !StageActivityTypeIdentifier.isStageActivity(activity.getType())) {
+				if (lastMainActivityIndex >= 0 && i - lastMainActivityIndex > 1) {
+					originActivities[nTrips] = (Activity) planElements.get(lastMainActivityIndex);
+					destinationActivities[nTrips] = activity;
+					originIndices[nTrips] = lastMainActivityIndex;
+					destinationIndices[nTrips] = i;
+					nTrips++;
+				}
+				lastMainActivityIndex = i;
+			}
+		}
+		this.numberOfTrips = nTrips;
+		this.originActivities = Arrays.copyOf(originActivities, nTrips);
+		this.destinationActivities = Arrays.copyOf(destinationActivities, nTrips);
+		this.originIndices = Arrays.copyOf(originIndices, nTrips);
+		this.destinationIndices = Arrays.copyOf(destinationIndices, nTrips);
+		this.originActivityStartTimes = new double[nTrips];
+	}
+
+	/**
+	 * @return a new index of the plan, to be used only until the plan is changed other than by {@link #replaceTrip}
+	 */
+	static PlanTripIndex of(Plan plan) {
+		return new PlanTripIndex(plan);
+	}
+
+	int getNumberOfTrips() {
+		return numberOfTrips;
+	}
+
+	Activity getOriginActivity(int tripIndex) {
+		return originActivities[tripIndex];
+	}
+
+	Activity getDestinationActivity(int tripIndex) {
+		return destinationActivities[tripIndex];
+	}
+
+	int getOriginActivityPlanElementIndex(int tripIndex) {
+		return originIndices[tripIndex];
+	}
+
+	/**
+	 * Same as {@link TimeInterpretation#decideOnActivityEndTimeAlongPlan} for the origin activity of the trip, but the
+	 * times along the plan are cached and only computed from the last valid trip onward.
+	 */
+	double getDepartureTime(int tripIndex, TimeInterpretation timeInterpretation) {
+		if (timeInterpretation != startTimesInterpretation) {
+			startTimesInterpretation = timeInterpretation;
+			numberOfValidStartTimes = 0;
+		}
+		if (tripIndex >= numberOfValidStartTimes) {
+			computeStartTimesUpTo(tripIndex);
+		}
+		double startTime = originActivityStartTimes[tripIndex];
+		if (Double.isNaN(startTime)) {
+			// some plan element before has no defined end time, let the time interpretation handle that
+			return timeInterpretation.decideOnActivityEndTimeAlongPlan(originActivities[tripIndex], plan).seconds();
+		}
+		return timeInterpretation.decideOnActivityEndTime(originActivities[tripIndex], startTime).seconds();
+	}
+
+	private void computeStartTimesUpTo(int tripIndex) {
+		List<PlanElement> planElements = plan.getPlanElements();
+		int trip = numberOfValidStartTimes;
+		int elementIndex = trip == 0 ? 0 : originIndices[trip - 1];
+		double now = trip == 0 ? 0. : originActivityStartTimes[trip - 1];
+		for (; trip <= tripIndex; trip++) {
+			for (; elementIndex < originIndices[trip]; elementIndex++) {
+				if (!Double.isNaN(now)) {
+					OptionalTime endTime = startTimesInterpretation.decideOnElementEndTime(planElements.get(elementIndex), now);
+					now = endTime.isDefined() ? endTime.seconds() : Double.NaN;
+				}
+			}
+			originActivityStartTimes[trip] = now;
+		}
+		numberOfValidStartTimes = tripIndex + 1;
+	}
+
+	/**
+	 * @return the trip, built only from the plan elements of this trip
+	 */
+	Trip getTrip(int tripIndex) {
+		return TripStructureUtils.getTrips(plan.getPlanElements().subList(originIndices[tripIndex], destinationIndices[tripIndex] + 1)).get(0);
+	}
+
+	/**
+	 * Same as {@link org.matsim.core.router.TripRouter#insertTrip}, but without searching the trip activities in the
+	 * plan. Offsets of the following trips are shifted, their cached start times are recomputed when needed.
+	 */
+	void replaceTrip(int tripIndex, List<? extends PlanElement> newTrip) {
+		List<PlanElement> tripElements = plan.getPlanElements().subList(originIndices[tripIndex] + 1, destinationIndices[tripIndex]);
+		int delta = newTrip.size() - tripElements.size();
+		tripElements.clear();
+		tripElements.addAll(newTrip);
+		destinationIndices[tripIndex] += delta;
+		for (int i = tripIndex + 1; i < numberOfTrips; i++) {
+			originIndices[i] += delta;
+			destinationIndices[i] += delta;
+		}
+		numberOfValidStartTimes = Math.min(numberOfValidStartTimes, tripIndex + 1);
+	}
+}
@@ -0,0 +1,183 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.population.algorithms.PersonAlgorithm;
+import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.router.TripStructureUtils.Trip;
+import org.matsim.core.utils.timing.TimeInterpretation;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.extensions.pt.routing.ConcurrentRoutingExecutor;
+import org.matsim.facilities.FacilitiesUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * {@link PlanAlgorithm} routing several randomly chosen trips of a plan in one pass, either a fraction or a fixed number
+ * of trips, see {@link SingleTripStrategiesConfigGroup}. Like {@link RandomSingleTripPlanRouter}, activity times are not
+ * updated, so the trips are independent of each other: all departure times are taken from the plan before rerouting,
+ * the trips are routed concurrently with one {@link TripRouter} each and inserted into the plan at the end. If routing
+ * any of them fails, the plan is left unchanged and the exception is rethrown.
+ *
+ * An instance is not thread-safe and should be used by one replanning thread only, like the {@link TripRouter}s it holds.
+ *
+ * @author vsp-gleich
+ */
+public class RandomMultipleTripsPlanRouter implements PlanAlgorithm, PersonAlgorithm {
+
+	private record TripToRoute(int tripIndex, Trip oldTrip, double departureTime) {
+	}
+
+	private final Random rnd;
+	private final TimeInterpretation timeInterpretation;
+	private final List<TripRouter> tripRouters;
+	private final ConcurrentRoutingExecutor executor;
+	private final ActivityFacilities facilities;
+	private final double fractionOfTrips;
+	private final int numberOfTrips;
+	private ReplannedTripsCounter replannedTripsCounter = new ReplannedTripsCounter("RandomMultipleTripsPlanRouter");
+	private RouteStore routeStore = RouteStore.DISABLED;
+
+	/**
+	 * @param tripRouters one {@link TripRouter} per trip routed concurrently, at least one
+	 * @param executor pool the trips of all but the first trip router are routed on
+	 */
+	public RandomMultipleTripsPlanRouter(
+			final List<TripRouter> tripRouters,
+			final ConcurrentRoutingExecutor executor,
+			final ActivityFacilities facilities,
+			final Random rnd,
+			final SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup,
+			TimeInterpretation timeInterpretation) {
+		if (tripRouters.isEmpty()) {
+			throw new IllegalArgumentException("at least one trip router is needed");
+		}
+		this.tripRouters = tripRouters;
+		this.executor = executor;
+		this.facilities = facilities;
+		this.rnd = rnd;
+		this.fractionOfTrips = singleTripStrategiesConfigGroup.getMultipleTripsReRouteFraction();
+		this.numberOfTrips = singleTripStrategiesConfigGroup.getMultipleTripsReRouteNumber();
+		this.timeInterpretation = timeInterpretation;
+	}
+
+	@Override
+	public void run(final Plan plan) {
+		final PlanTripIndex trips = PlanTripIndex.of( plan );
+		int nTrips = trips.getNumberOfTrips();
+		if (nTrips == 0) {
+			return;
+		}
+
+		// partial Fisher-Yates shuffle of the trip indices, the first nToRoute are rerouted
+		int nToRoute = Math.min(nTrips, fractionOfTrips > 0. ? (int) Math.ceil(fractionOfTrips * nTrips) : numberOfTrips);
+		int[] tripIndices = new int[nTrips];
+		for (int i = 0; i < nTrips; i++) {
+			tripIndices[i] = i;
+		}
+		List<TripToRoute> tripsToRoute = new ArrayList<>(nToRoute);
+		for (int i = 0; i < nToRoute; i++) {
+			int j = i + this.rnd.nextInt(nTrips - i);
+			int tripIndex = tripIndices[j];
+			tripIndices[j] = tripIndices[i];
+			tripIndices[i] = tripIndex;
+			Trip oldTrip = trips.getTrip(tripIndex);
+			tripsToRoute.add(new TripToRoute(tripIndex, oldTrip, trips.getDepartureTime(tripIndex, timeInterpretation)));
+		}
+
+		List<List<? extends PlanElement>> newTrips = routeConcurrently(tripsToRoute, plan.getPerson());
+
+		for (int i = 0; i < nToRoute; i++) {
+			Trip oldTrip = tripsToRoute.get(i).oldTrip();
+			RandomSingleTripPlanRouter.putVehicleFromOldTripIntoNewTripIfMeaningful(oldTrip, newTrips.get(i));
+			boolean unchanged = TripFingerprint.isUnchanged(oldTrip.getTripElements(), newTrips.get(i));
+			replannedTripsCounter.record(unchanged);
+			if (!unchanged) {
+				trips.replaceTrip(tripsToRoute.get(i).tripIndex(), newTrips.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Trip k is routed by trip router k modulo the number of trip routers. The trips of the first trip router are routed
+	 * in the calling thread, the others on the shared {@link ConcurrentRoutingExecutor}.
+	 */
+	private List<List<? extends PlanElement>> routeConcurrently(List<TripToRoute> tripsToRoute, Person person) {
+		int nRouters = Math.min(tripRouters.size(), tripsToRoute.size());
+		@SuppressWarnings("unchecked")
+		List<? extends PlanElement>[] newTrips = new List[tripsToRoute.size()];
+		List<Callable<Void>> tasks = new ArrayList<>(nRouters);
+		for (int r = 0; r < nRouters; r++) {
+			int routerIndex = r;
+			tasks.add(() -> {
+				route(routerIndex, nRouters, tripsToRoute, person, newTrips);
+				return null;
+			});
+		}
+		executor.invokeAll(tasks);
+		return List.of(newTrips);
+	}
+
+	private void route(int routerIndex, int nRouters, List<TripToRoute> tripsToRoute, Person person, List<? extends PlanElement>[] newTrips) {
+		TripRouter tripRouter = tripRouters.get(routerIndex);
+		for (int i = routerIndex; i < tripsToRoute.size(); i += nRouters) {
+			Trip oldTrip = tripsToRoute.get(i).oldTrip();
+			newTrips[i] = routeStore.calcRoute(
+					tripRouter,
+					replannedTripsCounter,
+					TripStructureUtils.identifyMainMode( oldTrip.getTripElements() ),
+					FacilitiesUtils.toFacility( oldTrip.getOriginActivity(), facilities ),
+					FacilitiesUtils.toFacility( oldTrip.getDestinationActivity(), facilities ),
+					tripsToRoute.get(i).departureTime(),
+					person,
+					oldTrip.getTripAttributes());
+		}
+	}
+
+	/**
+	 * @param replannedTripsCounter counter shared with the other instances of the same replanning module
+	 */
+	void setReplannedTripsCounter(ReplannedTripsCounter replannedTripsCounter) {
+		this.replannedTripsCounter = replannedTripsCounter;
+	}
+
+	/**
+	 * @param routeStore store consulted before routing a trip
+	 */
+	void setRouteStore(RouteStore routeStore) {
+		this.routeStore = routeStore;
+	}
+
+	@Override
+	public void run(final Person person) {
+		for (Plan plan : person.getPlans()) {
+			run( plan );
+		}
+	}
+
+}
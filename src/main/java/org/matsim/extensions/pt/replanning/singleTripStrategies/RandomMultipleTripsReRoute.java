@@ -0,0 +1,69 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.replanning.PlanStrategy;
+import org.matsim.core.replanning.PlanStrategyImpl.Builder;
+import org.matsim.core.replanning.selectors.RandomPlanSelector;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.utils.timing.TimeInterpretation;
+import org.matsim.extensions.pt.routing.ConcurrentRoutingExecutor;
+import org.matsim.facilities.ActivityFacilities;
+
+import java.util.function.Supplier;
+
+/**
+ * Like {@link RandomSingleTripReRoute}, but reroutes several trips per plan, see {@link RandomMultipleTripsPlanRouter}.
+ *
+ * @author vsp-gleich
+ */
+public class RandomMultipleTripsReRoute implements Provider<PlanStrategy> {
+
+	@Inject private Config config;
+	@Inject private GlobalConfigGroup globalConfigGroup;
+	@Inject private ActivityFacilities facilities;
+	@Inject private Provider<TripRouter> tripRouterProvider;
+	@Inject private ConcurrentRoutingExecutor executor;
+	@Inject private TripRouterWarmUp tripRouterWarmUp;
+	@Inject private RouteStore routeStore;
+	@Inject private TimeInterpretation timeInterpretation;
+
+	@Override
+	public PlanStrategy get() {
+		Builder builder = new Builder(new RandomPlanSelector<Plan,Person>()) ;
+		SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup = ConfigUtils.addOrGetModule(config, SingleTripStrategiesConfigGroup.class);
+		// one plan algorithm with multipleTripsReRouteParallelism trip routers per replanning thread
+		Supplier<TripRouter> tripRouters = tripRouterWarmUp.reserve(Math.max(1, globalConfigGroup.getNumberOfThreads())
+				* singleTripStrategiesConfigGroup.getMultipleTripsReRouteParallelism(), tripRouterProvider::get);
+		RandomMultipleTripsReRouteModule module = new RandomMultipleTripsReRouteModule(facilities, tripRouters::get, executor, globalConfigGroup,
+				singleTripStrategiesConfigGroup, timeInterpretation);
+		module.setRouteStore(routeStore);
+		builder.addStrategyModule(module);
+		return builder.build() ;
+	}
+
+}
@@ -0,0 +1,98 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import jakarta.inject.Provider;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.utils.timing.TimeInterpretation;
+import org.matsim.extensions.pt.routing.ConcurrentRoutingExecutor;
+import org.matsim.facilities.ActivityFacilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reroutes several trips per plan with {@link RandomMultipleTripsPlanRouter}, each replanning thread holding
+ * {@link SingleTripStrategiesConfigGroup#getMultipleTripsReRouteParallelism()} trip routers. The trips are routed on the
+ * shared {@link ConcurrentRoutingExecutor}, so all replanning threads together use at most global.numberOfThreads
+ * additional threads.
+ *
+ * @author vsp-gleich
+ */
+public class RandomMultipleTripsReRouteModule extends BatchedMultithreadedModule {
+
+	private final ActivityFacilities facilities;
+	private final Provider<TripRouter> tripRouterProvider;
+	private final ConcurrentRoutingExecutor executor;
+	private final ReplannedTripsCounter replannedTripsCounter = new ReplannedTripsCounter("RandomMultipleTripsReRoute");
+	private RouteStore routeStore = RouteStore.DISABLED;
+	private final SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup;
+	private final TimeInterpretation timeInterpretation;
+
+	public RandomMultipleTripsReRouteModule(ActivityFacilities facilities, Provider<TripRouter> tripRouterProvider, ConcurrentRoutingExecutor executor,
+											GlobalConfigGroup globalConfigGroup, SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup,
+											TimeInterpretation timeInterpretation) {
+		super(globalConfigGroup, singleTripStrategiesConfigGroup);
+		this.facilities = facilities;
+		this.tripRouterProvider = tripRouterProvider;
+		this.executor = executor;
+		this.singleTripStrategiesConfigGroup = singleTripStrategiesConfigGroup;
+		this.timeInterpretation = timeInterpretation;
+	}
+
+	/**
+	 * @param routeStore store the plan algorithms consult before routing a trip
+	 */
+	public void setRouteStore(RouteStore routeStore) {
+		this.routeStore = routeStore;
+	}
+
+	@Override
+	public final PlanAlgorithm getPlanAlgoInstance(Random rnd) {
+		List<TripRouter> tripRouters = new ArrayList<>();
+		for (int i = 0; i < singleTripStrategiesConfigGroup.getMultipleTripsReRouteParallelism(); i++) {
+			tripRouters.add(tripRouterProvider.get());
+		}
+		RandomMultipleTripsPlanRouter planAlgo = new RandomMultipleTripsPlanRouter(
+				tripRouters,
+				executor,
+				facilities,
+				rnd,
+				singleTripStrategiesConfigGroup,
+				timeInterpretation);
+		planAlgo.setReplannedTripsCounter(replannedTripsCounter);
+		planAlgo.setRouteStore(routeStore);
+		return planAlgo;
+	}
+
+	@Override
+	protected long getRouterCalls() {
+		return replannedTripsCounter.getRouterCalls();
+	}
+
+	@Override
+	protected void afterFinishReplanningHook() {
+		replannedTripsCounter.logAndReset();
+	}
+
+}
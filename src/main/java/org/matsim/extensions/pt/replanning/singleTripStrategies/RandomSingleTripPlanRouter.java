@@ -48,6 +48,9 @@ import org.matsim.vehicles.Vehicle;
  */
 public class RandomSingleTripPlanRouter implements PlanAlgorithm, PersonAlgorithm {
 	private final Random rnd;
+	private final TripSelector tripSelector;
+	private ReplannedTripsCounter replannedTripsCounter = new ReplannedTripsCounter("RandomSingleTripPlanRouter");
+	private RouteStore routeStore = RouteStore.DISABLED;
 	private TimeInterpretation timeInterpretation;
 	private final TripRouter tripRouter;
 	private final ActivityFacilities facilities;
@@ -64,9 +67,22 @@ public class RandomSingleTripPlanRouter implements PlanAlgorithm, PersonAlgorith
 			final ActivityFacilities facilities,
 			final Random rnd,
 			TimeInterpretation timeInterpretation) {
+		this(tripRouter, facilities, rnd, TripSelector.UNIFORM, timeInterpretation);
+	}
+
+	/**
+	 * Initialises an instance choosing the trip by the given {@link TripSelector}.
+	 */
+	public RandomSingleTripPlanRouter(
+			final TripRouter tripRouter,
+			final ActivityFacilities facilities,
+			final Random rnd,
+			final TripSelector tripSelector,
+			TimeInterpretation timeInterpretation) {
 		this.tripRouter = tripRouter;
 		this.facilities = facilities;
 		this.rnd = rnd;
+		this.tripSelector = tripSelector;
 		this.timeInterpretation = timeInterpretation;
 	}
 
@@ -81,27 +97,30 @@ public class RandomSingleTripPlanRouter implements PlanAlgorithm, PersonAlgorith
 
 	@Override
 	public void run(final Plan plan) {
-		final List<Trip> trips = TripStructureUtils.getTrips( plan );
+		final PlanTripIndex trips = PlanTripIndex.of( plan );
 
-		if (trips.size() > 0) {
-			int rndIdx = this.rnd.nextInt(trips.size());
-			Trip oldTrip = trips.get(rndIdx);
+		if (trips.getNumberOfTrips() > 0) {
+			int rndIdx = this.tripSelector.selectTrip(plan, trips.getNumberOfTrips(), this.rnd);
+			Trip oldTrip = trips.getTrip(rndIdx);
 						
 			final List<? extends PlanElement> newTrip =
-					tripRouter.calcRoute(
+					routeStore.calcRoute(
+							tripRouter,
+							replannedTripsCounter,
 							TripStructureUtils.identifyMainMode( oldTrip.getTripElements() ),
 							FacilitiesUtils.toFacility( oldTrip.getOriginActivity(), facilities ),
 							FacilitiesUtils.toFacility( oldTrip.getDestinationActivity(), facilities ),
-							timeInterpretation.decideOnActivityEndTimeAlongPlan( oldTrip.getOriginActivity() , plan).seconds(),
+							trips.getDepartureTime(rndIdx, timeInterpretation),
 							plan.getPerson(),
 							oldTrip.getTripAttributes()); //not sure whether this should be oldTrip.getOriginActivity().getAttributes()
 
 			putVehicleFromOldTripIntoNewTripIfMeaningful(oldTrip, newTrip);
-			TripRouter.insertTrip(
-					plan, 
-					oldTrip.getOriginActivity(),
-					newTrip,
-					oldTrip.getDestinationActivity());
+			// keep the old plan elements if nothing changed
+			boolean unchanged = TripFingerprint.isUnchanged(oldTrip.getTripElements(), newTrip);
+			replannedTripsCounter.record(unchanged);
+			if (!unchanged) {
+				trips.replaceTrip(rndIdx, newTrip);
+			}
 		}
 	}
 
@@ -112,7 +131,7 @@ public class RandomSingleTripPlanRouter implements PlanAlgorithm, PersonAlgorith
 	 * @param oldTrip The old trip
 	 * @param newTrip The new trip
 	 */
-	private static void putVehicleFromOldTripIntoNewTripIfMeaningful(Trip oldTrip, List<? extends PlanElement> newTrip) {
+	static void putVehicleFromOldTripIntoNewTripIfMeaningful(Trip oldTrip, List<? extends PlanElement> newTrip) {
 		Id<Vehicle> oldVehicleId = getUniqueVehicleId(oldTrip);
 		if (oldVehicleId != null) {
 			for (Leg leg : TripStructureUtils.getLegs(newTrip)) {
@@ -138,6 +157,20 @@ public class RandomSingleTripPlanRouter implements PlanAlgorithm, PersonAlgorith
 		return vehicleId;
 	}
 
+	/**
+	 * @param replannedTripsCounter counter shared with the other instances of the same replanning module
+	 */
+	void setReplannedTripsCounter(ReplannedTripsCounter replannedTripsCounter) {
+		this.replannedTripsCounter = replannedTripsCounter;
+	}
+
+	/**
+	 * @param routeStore store consulted before routing a trip
+	 */
+	void setRouteStore(RouteStore routeStore) {
+		this.routeStore = routeStore;
+	}
+
 	@Override
 	public void run(final Person person) {
 		for (Plan plan : person.getPlans()) {
@@ -23,6 +23,8 @@ import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.replanning.PlanStrategy;
 import org.matsim.core.replanning.PlanStrategyImpl.Builder;
@@ -31,19 +33,31 @@ import org.matsim.core.router.TripRouter;
 import org.matsim.core.utils.timing.TimeInterpretation;
 import org.matsim.facilities.ActivityFacilities;
 
+import java.util.function.Supplier;
+
 
 public class RandomSingleTripReRoute implements Provider<PlanStrategy> {
 
+	@Inject private Config config;
 	@Inject private GlobalConfigGroup globalConfigGroup;
 	@Inject private ActivityFacilities facilities;
 	@Inject private Provider<TripRouter> tripRouterProvider;
+	@Inject private TripRouterWarmUp tripRouterWarmUp;
+	@Inject private RouteStore routeStore;
 	@Inject
 	private TimeInterpretation timeInterpretation;
+	@Inject private Provider<TripImprovementPotentials> tripImprovementPotentialsProvider;
 
 	@Override
 	public PlanStrategy get() {
 		Builder builder = new Builder(new RandomPlanSelector<Plan,Person>()) ;
-		builder.addStrategyModule(new RandomSingleTripReRouteModule(facilities, tripRouterProvider, globalConfigGroup, timeInterpretation));
+		SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup = ConfigUtils.addOrGetModule(config, SingleTripStrategiesConfigGroup.class);
+		// one plan algorithm with one trip router per replanning thread
+		Supplier<TripRouter> tripRouters = tripRouterWarmUp.reserve(Math.max(1, globalConfigGroup.getNumberOfThreads()), tripRouterProvider::get);
+		RandomSingleTripReRouteModule module = new RandomSingleTripReRouteModule(facilities, tripRouters::get, globalConfigGroup, singleTripStrategiesConfigGroup,
+				TripSelector.of(singleTripStrategiesConfigGroup, tripImprovementPotentialsProvider::get), timeInterpretation);
+		module.setRouteStore(routeStore);
+		builder.addStrategyModule(module);
 		return builder.build() ;
 	}
 
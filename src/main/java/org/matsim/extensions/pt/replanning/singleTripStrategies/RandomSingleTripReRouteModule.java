@@ -23,40 +23,70 @@ package org.matsim.extensions.pt.replanning.singleTripStrategies;
 import jakarta.inject.Provider;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.controler.Controler;
-import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
-import org.matsim.core.replanning.modules.AbstractMultithreadedModule;
 import org.matsim.core.router.TripRouter;
 import org.matsim.core.utils.timing.TimeInterpretation;
 import org.matsim.facilities.ActivityFacilities;
 
+import java.util.Random;
+
 /**
  * Uses the routing algorithm provided by the {@linkplain Controler} for 
  * calculating the routes of plans during Replanning.
  *
  * @author mrieser
  */
-public class RandomSingleTripReRouteModule extends AbstractMultithreadedModule {
+public class RandomSingleTripReRouteModule extends BatchedMultithreadedModule {
 	
 	private ActivityFacilities facilities;
 
 	private final Provider<TripRouter> tripRouterProvider;
+	private final ReplannedTripsCounter replannedTripsCounter = new ReplannedTripsCounter("RandomSingleTripReRoute");
+	private RouteStore routeStore = RouteStore.DISABLED;
 	private TimeInterpretation timeInterpretation;
+	private final TripSelector tripSelector;
 
 	public RandomSingleTripReRouteModule(ActivityFacilities facilities, Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup, TimeInterpretation timeInterpretation) {
-		super(globalConfigGroup);
+		this(facilities, tripRouterProvider, globalConfigGroup, new SingleTripStrategiesConfigGroup(), TripSelector.UNIFORM, timeInterpretation);
+	}
+
+	public RandomSingleTripReRouteModule(ActivityFacilities facilities, Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup,
+										 SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup, TripSelector tripSelector, TimeInterpretation timeInterpretation) {
+		super(globalConfigGroup, singleTripStrategiesConfigGroup);
+		this.tripSelector = tripSelector;
 		this.facilities = facilities;
 		this.tripRouterProvider = tripRouterProvider;
 		this.timeInterpretation = timeInterpretation;
 	}
 
+	/**
+	 * @param routeStore store the plan algorithms consult before routing a trip
+	 */
+	public void setRouteStore(RouteStore routeStore) {
+		this.routeStore = routeStore;
+	}
+
 	@Override
-	public final PlanAlgorithm getPlanAlgoInstance() {
-			return new RandomSingleTripPlanRouter(
+	public final PlanAlgorithm getPlanAlgoInstance(Random rnd) {
+			RandomSingleTripPlanRouter planAlgo = new RandomSingleTripPlanRouter(
 					tripRouterProvider.get(),
 					facilities,
-					MatsimRandom.getLocalInstance(),
+					rnd,
+					tripSelector,
 					timeInterpretation);
+			planAlgo.setReplannedTripsCounter(replannedTripsCounter);
+			planAlgo.setRouteStore(routeStore);
+			return planAlgo;
+	}
+
+	@Override
+	protected long getRouterCalls() {
+		return replannedTripsCounter.getRouterCalls();
+	}
+
+	@Override
+	protected void afterFinishReplanningHook() {
+		replannedTripsCounter.logAndReset();
 	}
 
 }
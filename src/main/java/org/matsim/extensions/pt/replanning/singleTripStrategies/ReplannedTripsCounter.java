@@ -0,0 +1,80 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts per replanning module how many rerouted trips were identical to the old trip, see {@link TripFingerprint}, so
+ * the strategy weights can be tuned, and how many trips were actually routed, i.e. not reused from the
+ * {@link RouteStore}, for the router call budget. Shared by the plan algorithm instances of all replanning threads of one module and
+ * logged after each replanning.
+ *
+ * @author vsp-gleich
+ */
+final class ReplannedTripsCounter {
+
+	private static final Logger log = LogManager.getLogger(ReplannedTripsCounter.class);
+
+	private final String strategyName;
+	private final LongAdder replannedTrips = new LongAdder();
+	private final LongAdder unchangedTrips = new LongAdder();
+	private final LongAdder routerCalls = new LongAdder();
+
+	ReplannedTripsCounter(String strategyName) {
+		this.strategyName = strategyName;
+	}
+
+	void record(boolean unchanged) {
+		replannedTrips.increment();
+		if (unchanged) {
+			unchangedTrips.increment();
+		}
+	}
+
+	void recordRouterCall() {
+		routerCalls.increment();
+	}
+
+	long getRouterCalls() {
+		return routerCalls.sum();
+	}
+
+	long getReplannedTrips() {
+		return replannedTrips.sum();
+	}
+
+	long getUnchangedTrips() {
+		return unchangedTrips.sum();
+	}
+
+	void logAndReset() {
+		long replanned = replannedTrips.sumThenReset();
+		long unchanged = unchangedTrips.sumThenReset();
+		routerCalls.reset();
+		if (replanned > 0) {
+			log.info(strategyName + ": " + unchanged + " of " + replanned + " replanned trips were unchanged ("
+					+ Math.round(100. * unchanged / replanned) + "%), old trips were kept.");
+		}
+	}
+}
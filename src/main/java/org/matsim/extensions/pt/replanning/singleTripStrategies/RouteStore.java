@@ -0,0 +1,536 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import ch.sbb.matsim.config.SwissRailRaptorConfigGroup;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Identifiable;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional persistent store of routed trips, so warm restarts from the same population, e.g. in calibration, do not
+ * route the same trips again. Trips are keyed by a hash of the network, the transit schedule and the scoring, routing
+ * and SwissRailRaptor config, the routing mode, origin and destination (facility, or link and coordinate), the
+ * departure time bin and the values of configured person attributes, see
+ * {@link SingleTripStrategiesConfigGroup#getRouteStoreFile()}.
+ *
+ * The store is an append-only file of records (key, serialized legs and interaction activities). Existing records are
+ * read by memory-mapping the file at startup and indexing the offsets of the records matching the current schedule and
+ * config; each of them is reused at most once, after that the trip is routed again, so rerouting still reacts to the
+ * travel times of this run. Every routed trip is appended to the file, but not reused within this run, so the file
+ * grows by the rerouted trips of each run; for duplicate keys the last record wins at startup. Departure and travel
+ * times of the legs are stored relative to the departure time and shifted to the requested departure time when a trip
+ * is reused, routes are reused as they are, so a reused trip is as good as a trip routed at another departure time
+ * within the same bin.
+ *
+ * Only mode, routing mode, times and route of the legs and type, link, coordinate and facility of the interaction
+ * activities are stored. Attributes of legs and activities set by routing modules are lost when a trip is reused, and
+ * the trip attributes of the request are not part of the key, so only use the store if the routing modules neither set
+ * attributes which are needed later nor route differently depending on trip attributes.
+ *
+ * Thread-safe. If no file is configured, {@link #calcRoute} only delegates to the trip router.
+ *
+ * @author vsp-gleich
+ */
+@Singleton
+public final class RouteStore implements IterationEndsListener, ShutdownListener {
+
+	private static final Logger log = LogManager.getLogger(RouteStore.class);
+	private static final long SEGMENT_SIZE = 1L << 30;
+	private static final byte LEG = 0;
+	private static final byte ACTIVITY = 1;
+	private static final String INTERACTION_SUFFIX = " interaction";
+
+	static final RouteStore DISABLED = new RouteStore();
+
+	private record MappedRecord(ByteBuffer segment, int offset, int length) {
+	}
+
+	private final Path file;
+	private final double departureTimeBinSize;
+	private final String[] personAttributes;
+	private final RouteFactories routeFactories;
+	private final String contextHash;
+	private final Map<String, MappedRecord> key2MappedRecord = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private DataOutputStream writer = null;
+
+	private RouteStore() {
+		this.file = null;
+		this.departureTimeBinSize = 1.;
+		this.personAttributes = new String[0];
+		this.routeFactories = null;
+		this.contextHash = null;
+	}
+
+	@Inject
+	RouteStore(Config config, Scenario scenario) {
+		SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup = ConfigUtils.addOrGetModule(config, SingleTripStrategiesConfigGroup.class);
+		String filename = singleTripStrategiesConfigGroup.getRouteStoreFile();
+		this.file = filename == null || filename.isBlank() ? null : Path.of(filename);
+		this.departureTimeBinSize = singleTripStrategiesConfigGroup.getRouteStoreDepartureTimeBinSize_s();
+		this.personAttributes = singleTripStrategiesConfigGroup.getRouteStorePersonAttributes().toArray(new String[0]);
+		this.routeFactories = scenario.getPopulation().getFactory().getRouteFactories();
+		this.contextHash = file == null ? null : Long.toHexString(hashContext(config, scenario.getNetwork(), scenario.getTransitSchedule()));
+		if (file != null) {
+			load();
+		}
+	}
+
+	boolean isEnabled() {
+		return file != null;
+	}
+
+	/**
+	 * Same as {@link TripRouter#calcRoute}, but reuses a trip stored by a previous run if there is one for the same key
+	 * which was not reused yet, otherwise routes and stores the trip. Only actual router calls are recorded in the
+	 * counter, so reused trips do not count towards the router call budget.
+	 */
+	List<? extends PlanElement> calcRoute(TripRouter tripRouter, ReplannedTripsCounter replannedTripsCounter, String mainMode,
+										  Facility fromFacility, Facility toFacility, double departureTime, Person person,
+										  Attributes tripAttributes) {
+		if (!isEnabled()) {
+			replannedTripsCounter.recordRouterCall();
+			return tripRouter.calcRoute(mainMode, fromFacility, toFacility, departureTime, person, tripAttributes);
+		}
+		String key = createKey(mainMode, fromFacility, toFacility, departureTime, person);
+		MappedRecord mappedRecord = key2MappedRecord.remove(key);
+		if (mappedRecord != null) {
+			hits.increment();
+			return decode(mappedRecord.segment().duplicate().position(mappedRecord.offset())
+					.limit(mappedRecord.offset() + mappedRecord.length()), departureTime);
+		}
+		misses.increment();
+		replannedTripsCounter.recordRouterCall();
+		List<? extends PlanElement> trip = tripRouter.calcRoute(mainMode, fromFacility, toFacility, departureTime, person, tripAttributes);
+		if (trip != null && !trip.isEmpty()) {
+			append(key, encode(trip, departureTime));
+		}
+		return trip;
+	}
+
+	private String createKey(String mainMode, Facility fromFacility, Facility toFacility, double departureTime, Person person) {
+		StringBuilder key = new StringBuilder(contextHash).append('|').append(mainMode);
+		appendLocation(key.append('|'), fromFacility);
+		appendLocation(key.append('|'), toFacility);
+		key.append('|').append((long) Math.floor(departureTime / departureTimeBinSize));
+		for (String attribute : personAttributes) {
+			key.append('|').append(person.getAttributes().getAttribute(attribute));
+		}
+		return key.toString();
+	}
+
+	private static void appendLocation(StringBuilder key, Facility facility) {
+		if (facility instanceof Identifiable<?> identifiable && identifiable.getId() != null) {
+			key.append('f').append(identifiable.getId());
+		} else {
+			key.append('l').append(facility.getLinkId());
+			if (facility.getCoord() != null) {
+				key.append('@').append(facility.getCoord().getX()).append(',').append(facility.getCoord().getY());
+			}
+		}
+	}
+
+	/**
+	 * Hash of the network, the schedule and of the scoring, routing and SwissRailRaptor config, so stored trips are only
+	 * reused with the network, schedule and routing parameters they were routed with.
+	 */
+	static long hashContext(Config config, Network network, TransitSchedule schedule) {
+		long hash = hashNetwork(network);
+		hash = TripFingerprint.mix(hash, hashSchedule(schedule));
+		hash = hashConfigGroup(hash, config.scoring());
+		hash = hashConfigGroup(hash, config.routing());
+		ConfigGroup raptorConfigGroup = config.getModules().get(SwissRailRaptorConfigGroup.GROUP);
+		if (raptorConfigGroup != null) {
+			hash = hashConfigGroup(hash, raptorConfigGroup);
+		}
+		return hash;
+	}
+
+	/**
+	 * Hash of the params sorted by name and of the parameter sets sorted by type, independent of the insertion order.
+	 */
+	static long hashConfigGroup(long hash, ConfigGroup configGroup) {
+		hash = mix(hash, configGroup.getName());
+		for (Map.Entry<String, String> param : new TreeMap<>(configGroup.getParams()).entrySet()) {
+			hash = mix(hash, param.getKey());
+			hash = mix(hash, param.getValue());
+		}
+		List<String> parameterSetTypes = new ArrayList<>(configGroup.getParameterSets().keySet());
+		parameterSetTypes.sort(Comparator.naturalOrder());
+		for (String type : parameterSetTypes) {
+			for (ConfigGroup parameterSet : configGroup.getParameterSets(type)) {
+				hash = hashConfigGroup(hash, parameterSet);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Hash of links, their nodes, length, free speed and allowed modes, so stored network routes are only reused on the
+	 * network they were routed on.
+	 */
+	static long hashNetwork(Network network) {
+		long hash = 0;
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		links.sort(Comparator.comparing(link -> link.getId().toString()));
+		for (Link link : links) {
+			hash = mix(hash, link.getId().toString());
+			hash = mix(hash, link.getFromNode().getId().toString());
+			hash = mix(hash, link.getToNode().getId().toString());
+			hash = TripFingerprint.mix(hash, Double.doubleToLongBits(link.getLength()));
+			hash = TripFingerprint.mix(hash, Double.doubleToLongBits(link.getFreespeed()));
+			List<String> modes = new ArrayList<>(link.getAllowedModes());
+			modes.sort(Comparator.naturalOrder());
+			for (String mode : modes) {
+				hash = mix(hash, mode);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Hash of stops, lines, routes and departures, so stored trips are only reused with the schedule they were routed on.
+	 */
+	static long hashSchedule(TransitSchedule schedule) {
+		long hash = 0;
+		List<TransitStopFacility> stops = new ArrayList<>(schedule.getFacilities().values());
+		stops.sort(Comparator.comparing(stop -> stop.getId().toString()));
+		for (TransitStopFacility stop : stops) {
+			hash = mix(hash, stop.getId().toString());
+			hash = mix(hash, String.valueOf(stop.getLinkId()));
+			hash = TripFingerprint.mix(hash, Double.doubleToLongBits(stop.getCoord().getX()));
+			hash = TripFingerprint.mix(hash, Double.doubleToLongBits(stop.getCoord().getY()));
+		}
+		List<TransitLine> lines = new ArrayList<>(schedule.getTransitLines().values());
+		lines.sort(Comparator.comparing(line -> line.getId().toString()));
+		for (TransitLine line : lines) {
+			hash = mix(hash, line.getId().toString());
+			List<TransitRoute> routes = new ArrayList<>(line.getRoutes().values());
+			routes.sort(Comparator.comparing(route -> route.getId().toString()));
+			for (TransitRoute route : routes) {
+				hash = mix(hash, route.getId().toString());
+				hash = mix(hash, route.getTransportMode());
+				for (TransitRouteStop routeStop : route.getStops()) {
+					hash = mix(hash, routeStop.getStopFacility().getId().toString());
+					hash = TripFingerprint.mix(hash, Double.doubleToLongBits(routeStop.getArrivalOffset().orElse(Double.NaN)));
+					hash = TripFingerprint.mix(hash, Double.doubleToLongBits(routeStop.getDepartureOffset().orElse(Double.NaN)));
+				}
+				List<Departure> departures = new ArrayList<>(route.getDepartures().values());
+				departures.sort(Comparator.comparing(departure -> departure.getId().toString()));
+				for (Departure departure : departures) {
+					hash = mix(hash, departure.getId().toString());
+					hash = TripFingerprint.mix(hash, Double.doubleToLongBits(departure.getDepartureTime()));
+				}
+			}
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, String string) {
+		return TripFingerprint.mix(hash, string == null ? 0L : string.hashCode());
+	}
+
+	// file layout per record: int key length, key (UTF-8), int payload length, payload
+
+	private void load() {
+		if (!Files.exists(file)) {
+			log.info("route store " + file + " does not exist yet, will be created.");
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			int otherContext = 0;
+			while (position < size) {
+				long segmentLength = Math.min(SEGMENT_SIZE, size - position);
+				MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, segmentLength);
+				int offset = 0;
+				while (offset + Integer.BYTES <= segmentLength) {
+					int keyLength = segment.getInt(offset);
+					int payloadLengthOffset = offset + Integer.BYTES + keyLength;
+					if (keyLength < 0 || payloadLengthOffset + Integer.BYTES > segmentLength) {
+						break;
+					}
+					int payloadLength = segment.getInt(payloadLengthOffset);
+					int payloadOffset = payloadLengthOffset + Integer.BYTES;
+					if (payloadLength < 0 || (long) payloadOffset + payloadLength > segmentLength) {
+						break;
+					}
+					byte[] keyBytes = new byte[keyLength];
+					segment.get(offset + Integer.BYTES, keyBytes);
+					String key = new String(keyBytes, StandardCharsets.UTF_8);
+					if (key.startsWith(contextHash + "|")) {
+						// records are appended, so a later record for the same key replaces the earlier one
+						key2MappedRecord.put(key, new MappedRecord(segment, payloadOffset, payloadLength));
+					} else {
+						otherContext++;
+					}
+					offset = payloadOffset + payloadLength;
+				}
+				if (offset == 0) {
+					// incomplete record at the end of the file, e.g. after a crash; overwritten by the next append
+					log.warn("route store " + file + " ends with an incomplete record after " + position + " bytes, ignoring the rest.");
+					truncate(position);
+					break;
+				}
+				position += offset;
+			}
+			log.info("route store " + file + ": " + key2MappedRecord.size() + " trips for the current network, schedule and config, "
+					+ otherContext + " records for other networks, schedules or configs.");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void truncate(long validLength) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(validLength);
+		}
+	}
+
+	private synchronized void append(String key, byte[] payload) {
+		try {
+			if (writer == null) {
+				writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile(), true)));
+			}
+			byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+			writer.writeInt(keyBytes.length);
+			writer.write(keyBytes);
+			writer.writeInt(payload.length);
+			writer.write(payload);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private byte[] encode(List<? extends PlanElement> trip, double departureTime) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(trip.size());
+			for (PlanElement planElement : trip) {
+				if (planElement instanceof Leg leg) {
+					out.writeByte(LEG);
+					writeString(out, leg.getMode());
+					writeString(out, TripStructureUtils.getRoutingMode(leg));
+					out.writeDouble(leg.getDepartureTime().isDefined() ? leg.getDepartureTime().seconds() - departureTime : Double.NaN);
+					out.writeDouble(leg.getTravelTime().orElse(Double.NaN));
+					Route route = leg.getRoute();
+					out.writeBoolean(route != null);
+					if (route != null) {
+						writeString(out, route.getRouteType());
+						writeString(out, route.getStartLinkId() == null ? null : route.getStartLinkId().toString());
+						writeString(out, route.getEndLinkId() == null ? null : route.getEndLinkId().toString());
+						out.writeDouble(route.getDistance());
+						out.writeDouble(route.getTravelTime().orElse(Double.NaN));
+						writeString(out, route.getRouteDescription());
+					}
+				} else if (planElement instanceof Activity activity) {
+					out.writeByte(ACTIVITY);
+					writeString(out, activity.getType());
+					writeString(out, activity.getLinkId() == null ? null : activity.getLinkId().toString());
+					out.writeBoolean(activity.getCoord() != null);
+					if (activity.getCoord() != null) {
+						out.writeDouble(activity.getCoord().getX());
+						out.writeDouble(activity.getCoord().getY());
+					}
+					writeString(out, activity.getFacilityId() == null ? null : activity.getFacilityId().toString());
+				} else {
+					throw new IllegalArgumentException("cannot store plan element " + planElement);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private List<PlanElement> decode(ByteBuffer buffer, double departureTime) {
+		int size = buffer.getInt();
+		List<PlanElement> trip = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			if (buffer.get() == LEG) {
+				Leg leg = PopulationUtils.createLeg(readString(buffer));
+				String routingMode = readString(buffer);
+				if (routingMode != null) {
+					TripStructureUtils.setRoutingMode(leg, routingMode);
+				}
+				double departureOffset = buffer.getDouble();
+				if (!Double.isNaN(departureOffset)) {
+					leg.setDepartureTime(departureTime + departureOffset);
+				}
+				double travelTime = buffer.getDouble();
+				if (!Double.isNaN(travelTime)) {
+					leg.setTravelTime(travelTime);
+				}
+				if (buffer.get() != 0) {
+					String routeType = readString(buffer);
+					Route route = routeFactories.createRoute(routeFactories.getRouteClassForType(routeType),
+							readLinkId(buffer), readLinkId(buffer));
+					route.setDistance(buffer.getDouble());
+					double routeTravelTime = buffer.getDouble();
+					if (!Double.isNaN(routeTravelTime)) {
+						route.setTravelTime(routeTravelTime);
+					}
+					String routeDescription = readString(buffer);
+					if (routeDescription != null) {
+						route.setRouteDescription(routeDescription);
+					}
+					leg.setRoute(route);
+				}
+				trip.add(leg);
+			} else {
+				String type = readString(buffer);
+				Id<Link> activityLinkId = readLinkId(buffer);
+				Coord coord = buffer.get() != 0 ? new Coord(buffer.getDouble(), buffer.getDouble()) : null;
+				Activity activity;
+				if (type.endsWith(INTERACTION_SUFFIX)) {
+					activity = PopulationUtils.createStageActivityFromCoordLinkIdAndModePrefix(coord, activityLinkId,
+							type.substring(0, type.length() - INTERACTION_SUFFIX.length()));
+				} else {
+					activity = PopulationUtils.createActivityFromLinkId(type, activityLinkId);
+					activity.setCoord(coord);
+				}
+				String facilityId = readString(buffer);
+				if (facilityId != null) {
+					activity.setFacilityId(Id.create(facilityId, ActivityFacility.class));
+				}
+				trip.add(activity);
+			}
+		}
+		return trip;
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		if (string == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static Id<Link> readLinkId(ByteBuffer buffer) {
+		String linkId = readString(buffer);
+		return linkId == null ? null : Id.createLinkId(linkId);
+	}
+
+	long getHits() {
+		return hits.sum();
+	}
+
+	long getMisses() {
+		return misses.sum();
+	}
+
+	synchronized void flush() {
+		if (writer != null) {
+			try {
+				writer.flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		log.info("route store: " + hits.sumThenReset() + " trips reused from previous runs, " + misses.sumThenReset()
+				+ " trips routed and stored, " + key2MappedRecord.size() + " stored trips not reused yet.");
+		flush();
+	}
+
+	@Override
+	public synchronized void notifyShutdown(ShutdownEvent event) {
+		if (writer != null) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			writer = null;
+		}
+	}
+}
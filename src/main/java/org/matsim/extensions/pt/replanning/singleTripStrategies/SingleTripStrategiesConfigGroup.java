@@ -0,0 +1,323 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.matsim.core.config.ReflectiveConfigGroup;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of the single trip replanning strategies {@link RandomSingleTripReRoute},
+ * {@link ChangeSingleTripModeAndRoute} and {@link RandomMultipleTripsReRoute}.
+ *
+ * @author vsp-gleich
+ */
+public class SingleTripStrategiesConfigGroup extends ReflectiveConfigGroup {
+
+	public static final String GROUP = "singleTripStrategies";
+
+	private static final String PARAM_MODE_WEIGHTS = "changeSingleTripModeWeights";
+	private static final String PARAM_TRIP_SELECTION = "tripSelection";
+	private static final String PARAM_TRIP_SELECTION_REFERENCE_SPEED = "tripSelectionReferenceSpeed";
+	private static final String PARAM_REPLANNING_BATCH_SIZE = "replanningBatchSize";
+	private static final String PARAM_REPLANNING_TIME_BUDGET = "replanningTimeBudget_s";
+	private static final String PARAM_REPLANNING_ROUTER_CALL_BUDGET = "replanningRouterCallBudget";
+	private static final String PARAM_REPLANNING_PRIORITY = "replanningPriority";
+	private static final String PARAM_ROUTER_WARM_UP_TRIPS_PER_MODE = "routerWarmUpTripsPerMode";
+	private static final String PARAM_ROUTE_STORE_FILE = "routeStoreFile";
+	private static final String PARAM_ROUTE_STORE_DEPARTURE_TIME_BIN_SIZE = "routeStoreDepartureTimeBinSize_s";
+	private static final String PARAM_ROUTE_STORE_PERSON_ATTRIBUTES = "routeStorePersonAttributes";
+	private static final String PARAM_MULTIPLE_TRIPS_FRACTION = "multipleTripsReRouteFraction";
+	private static final String PARAM_MULTIPLE_TRIPS_NUMBER = "multipleTripsReRouteNumber";
+	private static final String PARAM_MULTIPLE_TRIPS_PARALLELISM = "multipleTripsReRouteParallelism";
+
+	public enum TripSelection {uniform, improvementPotential}
+
+	public enum ReplanningPriority {handlingOrder, lowestScoreFirst}
+
+	private Map<String, Double> modeWeights = new LinkedHashMap<>();
+	private TripSelection tripSelection = TripSelection.uniform;
+	private double tripSelectionReferenceSpeed = 10.;
+	private int replanningBatchSize = 8;
+	private double replanningTimeBudget_s = 0.;
+	private long replanningRouterCallBudget = 0;
+	private ReplanningPriority replanningPriority = ReplanningPriority.handlingOrder;
+	private int routerWarmUpTripsPerMode = 0;
+	private String routeStoreFile = null;
+	private double routeStoreDepartureTimeBinSize_s = 300.;
+	private List<String> routeStorePersonAttributes = List.of("subpopulation");
+	private double multipleTripsReRouteFraction = 0.;
+	private int multipleTripsReRouteNumber = 2;
+	private int multipleTripsReRouteParallelism = 2;
+
+	public SingleTripStrategiesConfigGroup() {
+		super(GROUP);
+	}
+
+	@StringGetter(PARAM_MODE_WEIGHTS)
+	public String getModeWeightsAsString() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Double> entry : modeWeights.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(entry.getKey()).append(':').append(entry.getValue());
+		}
+		return sb.toString();
+	}
+
+	@StringSetter(PARAM_MODE_WEIGHTS)
+	public void setModeWeightsAsString(String modeWeights) {
+		this.modeWeights = new LinkedHashMap<>();
+		for (String modeWeight : modeWeights.split(",")) {
+			if (modeWeight.isBlank()) {
+				continue;
+			}
+			String[] parts = modeWeight.split(":");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("mode weight " + modeWeight + " is not of the form mode:weight");
+			}
+			setModeWeight(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+		}
+	}
+
+	/**
+	 * @return weights of the modes chosen by {@link ChangeSingleTripModeAndRoute}, modes not contained have weight 1
+	 */
+	public Map<String, Double> getModeWeights() {
+		return modeWeights;
+	}
+
+	public void setModeWeight(String mode, double weight) {
+		if (weight < 0. || Double.isNaN(weight)) {
+			throw new IllegalArgumentException("weight of mode " + mode + " must not be negative: " + weight);
+		}
+		this.modeWeights.put(mode, weight);
+	}
+
+	@StringGetter(PARAM_TRIP_SELECTION)
+	public TripSelection getTripSelection() {
+		return tripSelection;
+	}
+
+	@StringSetter(PARAM_TRIP_SELECTION)
+	public void setTripSelection(TripSelection tripSelection) {
+		this.tripSelection = tripSelection;
+	}
+
+	@StringGetter(PARAM_TRIP_SELECTION_REFERENCE_SPEED)
+	public double getTripSelectionReferenceSpeed() {
+		return tripSelectionReferenceSpeed;
+	}
+
+	@StringSetter(PARAM_TRIP_SELECTION_REFERENCE_SPEED)
+	public void setTripSelectionReferenceSpeed(double tripSelectionReferenceSpeed) {
+		if (tripSelectionReferenceSpeed <= 0.) {
+			throw new IllegalArgumentException(PARAM_TRIP_SELECTION_REFERENCE_SPEED + " must be positive: " + tripSelectionReferenceSpeed);
+		}
+		this.tripSelectionReferenceSpeed = tripSelectionReferenceSpeed;
+	}
+
+	@StringGetter(PARAM_REPLANNING_BATCH_SIZE)
+	public int getReplanningBatchSize() {
+		return replanningBatchSize;
+	}
+
+	@StringSetter(PARAM_REPLANNING_BATCH_SIZE)
+	public void setReplanningBatchSize(int replanningBatchSize) {
+		if (replanningBatchSize < 1) {
+			throw new IllegalArgumentException(PARAM_REPLANNING_BATCH_SIZE + " must be at least 1: " + replanningBatchSize);
+		}
+		this.replanningBatchSize = replanningBatchSize;
+	}
+
+	@StringGetter(PARAM_REPLANNING_TIME_BUDGET)
+	public double getReplanningTimeBudget_s() {
+		return replanningTimeBudget_s;
+	}
+
+	@StringSetter(PARAM_REPLANNING_TIME_BUDGET)
+	public void setReplanningTimeBudget_s(double replanningTimeBudget_s) {
+		if (replanningTimeBudget_s < 0.) {
+			throw new IllegalArgumentException(PARAM_REPLANNING_TIME_BUDGET + " must not be negative: " + replanningTimeBudget_s);
+		}
+		this.replanningTimeBudget_s = replanningTimeBudget_s;
+	}
+
+	@StringGetter(PARAM_REPLANNING_ROUTER_CALL_BUDGET)
+	public long getReplanningRouterCallBudget() {
+		return replanningRouterCallBudget;
+	}
+
+	@StringSetter(PARAM_REPLANNING_ROUTER_CALL_BUDGET)
+	public void setReplanningRouterCallBudget(long replanningRouterCallBudget) {
+		if (replanningRouterCallBudget < 0) {
+			throw new IllegalArgumentException(PARAM_REPLANNING_ROUTER_CALL_BUDGET + " must not be negative: " + replanningRouterCallBudget);
+		}
+		this.replanningRouterCallBudget = replanningRouterCallBudget;
+	}
+
+	@StringGetter(PARAM_REPLANNING_PRIORITY)
+	public ReplanningPriority getReplanningPriority() {
+		return replanningPriority;
+	}
+
+	@StringSetter(PARAM_REPLANNING_PRIORITY)
+	public void setReplanningPriority(ReplanningPriority replanningPriority) {
+		this.replanningPriority = replanningPriority;
+	}
+
+	@StringGetter(PARAM_ROUTER_WARM_UP_TRIPS_PER_MODE)
+	public int getRouterWarmUpTripsPerMode() {
+		return routerWarmUpTripsPerMode;
+	}
+
+	@StringSetter(PARAM_ROUTER_WARM_UP_TRIPS_PER_MODE)
+	public void setRouterWarmUpTripsPerMode(int routerWarmUpTripsPerMode) {
+		if (routerWarmUpTripsPerMode < 0) {
+			throw new IllegalArgumentException(PARAM_ROUTER_WARM_UP_TRIPS_PER_MODE + " must not be negative: " + routerWarmUpTripsPerMode);
+		}
+		this.routerWarmUpTripsPerMode = routerWarmUpTripsPerMode;
+	}
+
+	@StringGetter(PARAM_ROUTE_STORE_FILE)
+	public String getRouteStoreFile() {
+		return routeStoreFile;
+	}
+
+	@StringSetter(PARAM_ROUTE_STORE_FILE)
+	public void setRouteStoreFile(String routeStoreFile) {
+		this.routeStoreFile = routeStoreFile;
+	}
+
+	@StringGetter(PARAM_ROUTE_STORE_DEPARTURE_TIME_BIN_SIZE)
+	public double getRouteStoreDepartureTimeBinSize_s() {
+		return routeStoreDepartureTimeBinSize_s;
+	}
+
+	@StringSetter(PARAM_ROUTE_STORE_DEPARTURE_TIME_BIN_SIZE)
+	public void setRouteStoreDepartureTimeBinSize_s(double routeStoreDepartureTimeBinSize_s) {
+		if (routeStoreDepartureTimeBinSize_s <= 0.) {
+			throw new IllegalArgumentException(PARAM_ROUTE_STORE_DEPARTURE_TIME_BIN_SIZE + " must be positive: " + routeStoreDepartureTimeBinSize_s);
+		}
+		this.routeStoreDepartureTimeBinSize_s = routeStoreDepartureTimeBinSize_s;
+	}
+
+	@StringGetter(PARAM_ROUTE_STORE_PERSON_ATTRIBUTES)
+	public String getRouteStorePersonAttributesAsString() {
+		return String.join(",", routeStorePersonAttributes);
+	}
+
+	@StringSetter(PARAM_ROUTE_STORE_PERSON_ATTRIBUTES)
+	public void setRouteStorePersonAttributesAsString(String routeStorePersonAttributes) {
+		setRouteStorePersonAttributes(Arrays.stream(routeStorePersonAttributes.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList());
+	}
+
+	public List<String> getRouteStorePersonAttributes() {
+		return routeStorePersonAttributes;
+	}
+
+	public void setRouteStorePersonAttributes(List<String> routeStorePersonAttributes) {
+		this.routeStorePersonAttributes = List.copyOf(routeStorePersonAttributes);
+	}
+
+	@StringGetter(PARAM_MULTIPLE_TRIPS_FRACTION)
+	public double getMultipleTripsReRouteFraction() {
+		return multipleTripsReRouteFraction;
+	}
+
+	@StringSetter(PARAM_MULTIPLE_TRIPS_FRACTION)
+	public void setMultipleTripsReRouteFraction(double multipleTripsReRouteFraction) {
+		if (multipleTripsReRouteFraction < 0. || multipleTripsReRouteFraction > 1.) {
+			throw new IllegalArgumentException(PARAM_MULTIPLE_TRIPS_FRACTION + " must be between 0 and 1: " + multipleTripsReRouteFraction);
+		}
+		this.multipleTripsReRouteFraction = multipleTripsReRouteFraction;
+	}
+
+	@StringGetter(PARAM_MULTIPLE_TRIPS_NUMBER)
+	public int getMultipleTripsReRouteNumber() {
+		return multipleTripsReRouteNumber;
+	}
+
+	@StringSetter(PARAM_MULTIPLE_TRIPS_NUMBER)
+	public void setMultipleTripsReRouteNumber(int multipleTripsReRouteNumber) {
+		if (multipleTripsReRouteNumber < 1) {
+			throw new IllegalArgumentException(PARAM_MULTIPLE_TRIPS_NUMBER + " must be at least 1: " + multipleTripsReRouteNumber);
+		}
+		this.multipleTripsReRouteNumber = multipleTripsReRouteNumber;
+	}
+
+	@StringGetter(PARAM_MULTIPLE_TRIPS_PARALLELISM)
+	public int getMultipleTripsReRouteParallelism() {
+		return multipleTripsReRouteParallelism;
+	}
+
+	@StringSetter(PARAM_MULTIPLE_TRIPS_PARALLELISM)
+	public void setMultipleTripsReRouteParallelism(int multipleTripsReRouteParallelism) {
+		if (multipleTripsReRouteParallelism < 1) {
+			throw new IllegalArgumentException(PARAM_MULTIPLE_TRIPS_PARALLELISM + " must be at least 1: " + multipleTripsReRouteParallelism);
+		}
+		this.multipleTripsReRouteParallelism = multipleTripsReRouteParallelism;
+	}
+
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> map = super.getComments();
+		map.put(PARAM_MODE_WEIGHTS, "Comma-separated mode:weight pairs, e.g. pt:2,bike:1. ChangeSingleTripModeAndRoute chooses the new mode "
+				+ "among the modes of the changeMode config group with probabilities proportional to these weights, e.g. observed mode shares. "
+				+ "Modes not listed have weight 1. Default: uniform.");
+		map.put(PARAM_TRIP_SELECTION, "How RandomSingleTripReRoute and ChangeSingleTripModeAndRoute choose the trip to replan: uniform, or "
+				+ "improvementPotential, i.e. in proportion to how much the experienced travel time of the trip in the last iteration exceeded "
+				+ "the beeline distance divided by " + PARAM_TRIP_SELECTION_REFERENCE_SPEED + ". Applies to plans executed in an earlier iteration "
+				+ "and unchanged since, trips of plans never executed are chosen uniformly. The latter requires the SingleTripStrategiesModule.");
+		map.put(PARAM_TRIP_SELECTION_REFERENCE_SPEED, "Beeline speed [m/s] of the teleport estimate used by tripSelection improvementPotential.");
+		map.put(PARAM_REPLANNING_BATCH_SIZE, "Number of plans a replanning thread of the single trip strategies takes at once from the plans "
+				+ "left to replan. Small batches balance the load better if routing times vary a lot between persons.");
+		map.put(PARAM_REPLANNING_TIME_BUDGET, "Wall-clock time [s] per iteration each single trip strategy module may spend on replanning. "
+				+ "Plans not replanned when the budget is exhausted stay unchanged. 0 means unlimited.");
+		map.put(PARAM_REPLANNING_ROUTER_CALL_BUDGET, "Number of router calls per iteration each single trip strategy module may make. "
+				+ "Plans not replanned when the budget is exhausted stay unchanged. 0 means unlimited.");
+		map.put(PARAM_REPLANNING_PRIORITY, "Order in which the single trip strategy modules replan the plans, relevant if a budget is set: "
+				+ "handlingOrder, or lowestScoreFirst, i.e. persons whose best other plan has the lowest score first.");
+		map.put(PARAM_ROUTER_WARM_UP_TRIPS_PER_MODE, "If positive, the trip routers of each single trip strategy module (one per thread, "
+				+ "times " + PARAM_MULTIPLE_TRIPS_PARALLELISM + " for RandomMultipleTripsReRoute) are created at startup and route this number "
+				+ "of trips from the population with each mode, so the first replanning of the single trip strategies does not pay for "
+				+ "allocations and JIT compilation. Warm-up routing is not counted in the pt routing statistics. Requires the "
+				+ "SingleTripStrategiesModule. 0 disables the warm-up.");
+		map.put(PARAM_ROUTE_STORE_FILE, "If set, the single trip strategies reuse each trip routed in previous runs from this append-only "
+				+ "file at most once and append all trips routed in this run, so the file grows with each run. Trips are keyed by a hash of "
+				+ "the network, the transit schedule, the scoring, routing and SwissRailRaptor config, mode, origin, destination, departure "
+				+ "time bin and " + PARAM_ROUTE_STORE_PERSON_ATTRIBUTES + ". Leg attributes are not stored and trip attributes are not part of "
+				+ "the key. Requires the SingleTripStrategiesModule. Default: no route store.");
+		map.put(PARAM_ROUTE_STORE_DEPARTURE_TIME_BIN_SIZE, "Trips departing within the same bin [s] share the stored route.");
+		map.put(PARAM_ROUTE_STORE_PERSON_ATTRIBUTES, "Comma-separated person attributes which influence routing, e.g. subpopulation "
+				+ "if routing parameters differ by subpopulation; persons with different values do not share stored routes.");
+		map.put(PARAM_MULTIPLE_TRIPS_FRACTION, "Fraction of the trips of a plan rerouted by RandomMultipleTripsReRoute, rounded up. "
+				+ "If 0, " + PARAM_MULTIPLE_TRIPS_NUMBER + " is used instead.");
+		map.put(PARAM_MULTIPLE_TRIPS_NUMBER, "Number of trips of a plan rerouted by RandomMultipleTripsReRoute, if "
+				+ PARAM_MULTIPLE_TRIPS_FRACTION + " is 0. Plans with fewer trips have all trips rerouted.");
+		map.put(PARAM_MULTIPLE_TRIPS_PARALLELISM, "Number of trip routers per replanning thread of RandomMultipleTripsReRoute, "
+				+ "i.e. number of trips of one plan routed concurrently. 1 routes sequentially in the replanning thread.");
+		return map;
+	}
+}
@@ -0,0 +1,50 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.extensions.pt.routing.ConcurrentRoutingExecutor;
+
+/**
+ * Binds what the single trip strategies need besides their strategy bindings, depending on the
+ * {@link SingleTripStrategiesConfigGroup}.
+ *
+ * @author vsp-gleich
+ */
+public class SingleTripStrategiesModule extends AbstractModule {
+
+	@Override
+	public void install() {
+		SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup = ConfigUtils.addOrGetModule(getConfig(), SingleTripStrategiesConfigGroup.class);
+		// shuts down the pool RandomMultipleTripsReRoute routes on
+		addControlerListenerBinding().to(ConcurrentRoutingExecutor.class);
+		if (singleTripStrategiesConfigGroup.getTripSelection() == SingleTripStrategiesConfigGroup.TripSelection.improvementPotential) {
+			addControlerListenerBinding().to(TripImprovementPotentials.class);
+		}
+		if (singleTripStrategiesConfigGroup.getRouterWarmUpTripsPerMode() > 0) {
+			addControlerListenerBinding().to(TripRouterWarmUp.class);
+		}
+		String routeStoreFile = singleTripStrategiesConfigGroup.getRouteStoreFile();
+		if (routeStoreFile != null && !routeStoreFile.isBlank()) {
+			addControlerListenerBinding().to(RouteStore.class);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.pt.routes.TransitPassengerRoute;
+
+import java.util.List;
+
+/**
+ * 64 bit fingerprint of the legs and interaction activities of a trip: modes, times, start and end links, network
+ * links and vehicle, transit line, route and stops. Computed without building route descriptions for network and
+ * transit routes, so comparing a newly routed trip with the old one is cheap.
+ *
+ * @author vsp-gleich
+ */
+final class TripFingerprint {
+
+	private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private TripFingerprint() {
+	}
+
+	/**
+	 * @return true if both trips have the same fingerprint, i.e. the new trip is structurally identical to the old one
+	 * up to hash collisions
+	 */
+	static boolean isUnchanged(List<? extends PlanElement> oldTripElements, List<? extends PlanElement> newTripElements) {
+		return oldTripElements.size() == newTripElements.size() && of(oldTripElements) == of(newTripElements);
+	}
+
+	static long of(List<? extends PlanElement> tripElements) {
+		long hash = tripElements.size();
+		for (PlanElement planElement : tripElements) {
+			if (planElement instanceof Leg leg) {
+				hash = mix(hash, leg.getMode());
+				hash = mix(hash, TripStructureUtils.getRoutingMode(leg));
+				hash = mix(hash, leg.getDepartureTime());
+				hash = mix(hash, leg.getTravelTime());
+				hash = mix(hash, leg.getRoute());
+			} else if (planElement instanceof Activity activity) {
+				hash = mix(hash, activity.getType());
+				hash = mix(hash, activity.getLinkId());
+				hash = mix(hash, activity.getFacilityId());
+				hash = mix(hash, activity.getCoord());
+				hash = mix(hash, activity.getMaximumDuration());
+				hash = mix(hash, activity.getEndTime());
+			}
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, Route route) {
+		if (route == null) {
+			return mix(hash, 0L);
+		}
+		hash = mix(hash, route.getClass().getName());
+		hash = mix(hash, route.getStartLinkId());
+		hash = mix(hash, route.getEndLinkId());
+		hash = mix(hash, Double.doubleToLongBits(route.getDistance()));
+		hash = mix(hash, route.getTravelTime());
+		if (route instanceof NetworkRoute networkRoute) {
+			hash = mix(hash, networkRoute.getVehicleId());
+			for (Id<?> linkId : networkRoute.getLinkIds()) {
+				hash = mix(hash, linkId);
+			}
+		} else if (route instanceof TransitPassengerRoute transitRoute) {
+			hash = mix(hash, transitRoute.getLineId());
+			hash = mix(hash, transitRoute.getRouteId());
+			hash = mix(hash, transitRoute.getAccessStopId());
+			hash = mix(hash, transitRoute.getEgressStopId());
+			hash = mix(hash, transitRoute.getBoardingTime());
+		} else {
+			hash = mix(hash, route.getRouteDescription());
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, Coord coord) {
+		if (coord == null) {
+			return mix(hash, 0L);
+		}
+		return mix(mix(hash, Double.doubleToLongBits(coord.getX())), Double.doubleToLongBits(coord.getY()));
+	}
+
+	private static long mix(long hash, OptionalTime time) {
+		return mix(hash, time.isDefined() ? Double.doubleToLongBits(time.seconds()) : Long.MIN_VALUE);
+	}
+
+	private static long mix(long hash, Id<?> id) {
+		return mix(hash, id == null ? -1L : id.index());
+	}
+
+	private static long mix(long hash, String string) {
+		return mix(hash, string == null ? 0L : string.hashCode());
+	}
+
+	static long mix(long hash, long value) {
+		hash = (hash ^ value) * MULTIPLIER;
+		return hash ^ (hash >>> 32);
+	}
+}
@@ -0,0 +1,150 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.router.TripStructureUtils.Trip;
+import org.matsim.core.scoring.ExperiencedPlansService;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chooses trips in proportion to their improvement potential, i.e. how much longer the experienced travel time of the
+ * trip in the last iteration was than a cheap teleport estimate (beeline distance divided by
+ * {@link SingleTripStrategiesConfigGroup#getTripSelectionReferenceSpeed()}). Every trip keeps a minimum weight of
+ * {@link #MINIMUM_WEIGHT_S} so trips which are already good are still replanned occasionally.
+ *
+ * The potentials are recorded per plan at the end of each iteration from the experienced plans for the plan which was
+ * executed, i.e. the selected plan at the end of the iteration, and kept as long as the plan is in the memory of the
+ * person. Plans are recognized by their fingerprint, because strategies replan a copy of them, so the potentials apply to
+ * every plan which was executed in some iteration without having changed since, whichever plan the strategy selects.
+ * Trips of plans never executed are chosen uniformly. Registered as controler listener by
+ * {@link SingleTripStrategiesModule}.
+ *
+ * @author vsp-gleich
+ */
+@Singleton
+public final class TripImprovementPotentials implements TripSelector, IterationEndsListener {
+
+	static final double MINIMUM_WEIGHT_S = 60.;
+
+	private final Population population;
+	private final ExperiencedPlansService experiencedPlansService;
+	private final double referenceSpeed;
+	// per person the trip weights by plan fingerprint, written at iteration end and read during replanning
+	private final Map<Id<Person>, Map<Long, double[]>> person2PlanFingerprint2TripWeights = new ConcurrentHashMap<>();
+
+	@Inject
+	TripImprovementPotentials(Config config, Population population, ExperiencedPlansService experiencedPlansService) {
+		this.population = population;
+		this.experiencedPlansService = experiencedPlansService;
+		this.referenceSpeed = ConfigUtils.addOrGetModule(config, SingleTripStrategiesConfigGroup.class).getTripSelectionReferenceSpeed();
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		for (Map.Entry<Id<Person>, Plan> entry : experiencedPlansService.getExperiencedPlans().entrySet()) {
+			Person person = population.getPersons().get(entry.getKey());
+			if (person != null && person.getSelectedPlan() != null) {
+				recordExperiencedPlan(person.getSelectedPlan(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * @param executedPlan the plan the experienced plan resulted from
+	 */
+	void recordExperiencedPlan(Plan executedPlan, Plan experiencedPlan) {
+		Person person = executedPlan.getPerson();
+		Map<Long, double[]> planFingerprint2TripWeights = person2PlanFingerprint2TripWeights.computeIfAbsent(person.getId(), id -> new HashMap<>());
+		long executedPlanFingerprint = TripFingerprint.of(executedPlan.getPlanElements());
+		List<Trip> trips = TripStructureUtils.getTrips(experiencedPlan);
+		if (trips.size() != TripStructureUtils.getTrips(executedPlan).size()) {
+			// e.g. stuck agents, the trips cannot be matched
+			planFingerprint2TripWeights.remove(executedPlanFingerprint);
+			return;
+		}
+		double[] weights = new double[trips.size()];
+		for (int i = 0; i < trips.size(); i++) {
+			weights[i] = MINIMUM_WEIGHT_S + calcImprovementPotential(trips.get(i));
+		}
+		planFingerprint2TripWeights.put(executedPlanFingerprint, weights);
+		if (planFingerprint2TripWeights.size() > person.getPlans().size()) {
+			// forget plans removed from the memory of the person
+			Set<Long> planFingerprints = new HashSet<>();
+			for (Plan plan : person.getPlans()) {
+				planFingerprints.add(TripFingerprint.of(plan.getPlanElements()));
+			}
+			planFingerprint2TripWeights.keySet().retainAll(planFingerprints);
+		}
+	}
+
+	private double calcImprovementPotential(Trip trip) {
+		Coord fromCoord = trip.getOriginActivity().getCoord();
+		Coord toCoord = trip.getDestinationActivity().getCoord();
+		if (fromCoord == null || toCoord == null || trip.getOriginActivity().getEndTime().isUndefined()
+				|| trip.getDestinationActivity().getStartTime().isUndefined()) {
+			return 0.;
+		}
+		double travelTime = trip.getDestinationActivity().getStartTime().seconds() - trip.getOriginActivity().getEndTime().seconds();
+		double teleportEstimate = CoordUtils.calcEuclideanDistance(fromCoord, toCoord) / referenceSpeed;
+		return Math.max(0., travelTime - teleportEstimate);
+	}
+
+	@Override
+	public int selectTrip(Plan plan, int numberOfTrips, Random rnd) {
+		Map<Long, double[]> planFingerprint2TripWeights = person2PlanFingerprint2TripWeights.get(plan.getPerson().getId());
+		double[] weights = planFingerprint2TripWeights == null ? null : planFingerprint2TripWeights.get(TripFingerprint.of(plan.getPlanElements()));
+		if (weights == null || weights.length != numberOfTrips) {
+			// not (a copy of) an executed plan, there are no experienced travel times of its trips
+			return UNIFORM.selectTrip(plan, numberOfTrips, rnd);
+		}
+		double sum = 0.;
+		for (double weight : weights) {
+			sum += weight;
+		}
+		double draw = rnd.nextDouble() * sum;
+		for (int i = 0; i < numberOfTrips - 1; i++) {
+			draw -= weights[i];
+			if (draw < 0.) {
+				return i;
+			}
+		}
+		return numberOfTrips - 1;
+	}
+}
@@ -0,0 +1,204 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.events.StartupEvent;
+import org.matsim.core.controler.listener.StartupListener;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.router.TripStructureUtils.Trip;
+import org.matsim.extensions.pt.routing.ptRoutingModes.PtRoutingStatistics;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.facilities.FacilitiesUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Optional warm-up of the trip routers used by the single trip strategies at startup: each single trip strategy module
+ * reserves the trip routers it creates in its first replanning by {@link #reserve} when it is created, i.e. before
+ * startup. At startup all reserved {@link TripRouter}s are created on global.numberOfThreads threads and route a small
+ * set of trips taken from the population with each mode, so the routers' working memory is allocated and the JIT has
+ * compiled the routing code before the first replanning. Each module then gets its own warm routers first.
+ *
+ * Warm-up routing is not counted in the pt routing statistics, see {@link PtRoutingStatistics#runWithoutStatistics}.
+ *
+ * Registered as controler listener by {@link SingleTripStrategiesModule} if
+ * {@link SingleTripStrategiesConfigGroup#getRouterWarmUpTripsPerMode()} is positive.
+ *
+ * @author vsp-gleich
+ */
+@Singleton
+public final class TripRouterWarmUp implements StartupListener {
+
+	private static final Logger log = LogManager.getLogger(TripRouterWarmUp.class);
+	private static final double DEFAULT_DEPARTURE_TIME = 8 * 3600.;
+
+	private final Config config;
+	private final Population population;
+	private final ActivityFacilities facilities;
+	private final Provider<TripRouter> tripRouterProvider;
+	private final List<Reservation> reservations = new CopyOnWriteArrayList<>();
+
+	@Inject
+	TripRouterWarmUp(Config config, Population population, ActivityFacilities facilities, Provider<TripRouter> tripRouterProvider) {
+		this.config = config;
+		this.population = population;
+		this.facilities = facilities;
+		this.tripRouterProvider = tripRouterProvider;
+	}
+
+	/**
+	 * Reserves warm trip routers for one plan strategy module, to be called when the module is created.
+	 *
+	 * @param numberOfTripRouters number of trip routers the module creates in its first replanning
+	 * @param fallback creates the trip routers once the warm ones are used up, or if there was no warm-up
+	 * @return supplier of trip routers for the module, warm ones first
+	 */
+	public Supplier<TripRouter> reserve(int numberOfTripRouters, Supplier<TripRouter> fallback) {
+		Reservation reservation = new Reservation(numberOfTripRouters, fallback);
+		reservations.add(reservation);
+		return reservation;
+	}
+
+	@Override
+	public void notifyStartup(StartupEvent event) {
+		int tripsPerMode = ConfigUtils.addOrGetModule(config, SingleTripStrategiesConfigGroup.class).getRouterWarmUpTripsPerMode();
+		List<Trip> trips = new ArrayList<>();
+		List<Person> persons = new ArrayList<>();
+		Set<String> modes = new LinkedHashSet<>(Arrays.asList(config.changeMode().getModes()));
+		for (Person person : population.getPersons().values()) {
+			Plan plan = person.getSelectedPlan();
+			if (plan == null) {
+				continue;
+			}
+			for (Trip trip : TripStructureUtils.getTrips(plan)) {
+				trips.add(trip);
+				persons.add(person);
+				modes.add(TripStructureUtils.identifyMainMode(trip.getTripElements()));
+				if (trips.size() >= tripsPerMode) {
+					break;
+				}
+			}
+			if (trips.size() >= tripsPerMode) {
+				break;
+			}
+		}
+		if (trips.isEmpty()) {
+			log.warn("no trips in the population to warm up the trip routers with.");
+			return;
+		}
+
+		// one entry per trip router to warm up, in the order of the reservations
+		ConcurrentLinkedQueue<Reservation> pending = new ConcurrentLinkedQueue<>();
+		for (Reservation reservation : reservations) {
+			for (int i = 0; i < reservation.numberOfTripRouters; i++) {
+				pending.add(reservation);
+			}
+		}
+		if (pending.isEmpty()) {
+			log.warn("no single trip strategy module reserved trip routers to warm up.");
+			return;
+		}
+
+		int nThreads = Math.max(1, Math.min(config.global().getNumberOfThreads(), pending.size()));
+		log.info("warming up " + pending.size() + " trip routers for " + reservations.size() + " plan strategy modules on "
+				+ nThreads + " threads with " + trips.size() + " trips for each of the modes " + modes);
+		long start = System.nanoTime();
+		PtRoutingStatistics.runWithoutStatistics(() -> {
+			Thread[] threads = new Thread[nThreads];
+			for (int t = 0; t < nThreads; t++) {
+				threads[t] = new Thread(() -> {
+					for (Reservation reservation = pending.poll(); reservation != null; reservation = pending.poll()) {
+						reservation.warmTripRouters.add(warmUp(trips, persons, modes));
+					}
+				}, "TripRouterWarmUp." + t);
+				threads[t].setDaemon(true);
+				threads[t].start();
+			}
+			try {
+				for (Thread thread : threads) {
+					thread.join();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		});
+		log.info("trip router warm-up took " + (System.nanoTime() - start) / 1e9 + "s");
+	}
+
+	private TripRouter warmUp(List<Trip> trips, List<Person> persons, Set<String> modes) {
+		TripRouter tripRouter = tripRouterProvider.get();
+		for (String mode : modes) {
+			for (int i = 0; i < trips.size(); i++) {
+				Trip trip = trips.get(i);
+				try {
+					tripRouter.calcRoute(
+							mode,
+							FacilitiesUtils.toFacility( trip.getOriginActivity(), facilities ),
+							FacilitiesUtils.toFacility( trip.getDestinationActivity(), facilities ),
+							trip.getOriginActivity().getEndTime().orElse(DEFAULT_DEPARTURE_TIME),
+							persons.get(i),
+							trip.getTripAttributes());
+				} catch (RuntimeException e) {
+					// e.g. no routing module for that mode, warming up is best effort
+					log.warn("warm-up routing with mode " + mode + " failed: " + e.getMessage());
+					break;
+				}
+			}
+		}
+		return tripRouter;
+	}
+
+	private static final class Reservation implements Supplier<TripRouter> {
+		private final int numberOfTripRouters;
+		private final Supplier<TripRouter> fallback;
+		private final ConcurrentLinkedDeque<TripRouter> warmTripRouters = new ConcurrentLinkedDeque<>();
+
+		private Reservation(int numberOfTripRouters, Supplier<TripRouter> fallback) {
+			this.numberOfTripRouters = numberOfTripRouters;
+			this.fallback = fallback;
+		}
+
+		@Override
+		public TripRouter get() {
+			TripRouter tripRouter = warmTripRouters.poll();
+			return tripRouter != null ? tripRouter : fallback.get();
+		}
+	}
+}
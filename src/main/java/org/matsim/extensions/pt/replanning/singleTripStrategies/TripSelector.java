@@ -0,0 +1,53 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.matsim.api.core.v01.population.Plan;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Chooses the trip of a plan to be replanned by the single trip strategies.
+ *
+ * @author vsp-gleich
+ */
+public interface TripSelector {
+
+	/**
+	 * Each trip with the same probability.
+	 */
+	TripSelector UNIFORM = (plan, numberOfTrips, rnd) -> rnd.nextInt(numberOfTrips);
+
+	/**
+	 * @return index of the chosen trip, between 0 (inclusive) and numberOfTrips (exclusive)
+	 */
+	int selectTrip(Plan plan, int numberOfTrips, Random rnd);
+
+	/**
+	 * @return the trip selector configured in the {@link SingleTripStrategiesConfigGroup}
+	 */
+	static TripSelector of(SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup, Supplier<TripImprovementPotentials> tripImprovementPotentials) {
+		return switch (singleTripStrategiesConfigGroup.getTripSelection()) {
+			case uniform -> UNIFORM;
+			case improvementPotential -> tripImprovementPotentials.get();
+		};
+	}
+}
@@ -0,0 +1,123 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.routing;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.ShutdownListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread pool shared by all routers which split one routing job into several concurrent routing requests, e.g. the
+ * routing modes of one trip or several trips of one plan. The number of threads is bounded by global.numberOfThreads,
+ * idle threads time out and the pool is shut down at the end of the run.
+ * <p>
+ * Tasks not yet started when the submitting thread waits for them are run in the submitting thread, so nested or
+ * concurrent submissions never deadlock on the bounded pool. After shutdown all tasks run in the submitting thread.
+ *
+ * @author vsp-gleich
+ */
+@Singleton
+public final class ConcurrentRoutingExecutor implements ShutdownListener {
+
+	private final ThreadPoolExecutor executor;
+
+	@Inject
+	ConcurrentRoutingExecutor(Config config) {
+		this(config.global().getNumberOfThreads());
+	}
+
+	public ConcurrentRoutingExecutor(int numberOfThreads) {
+		int poolSize = Math.max(1, numberOfThreads);
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ConcurrentRoutingExecutor-%d").build(),
+				(task, executor) -> task.run());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Runs the first task in the calling thread and the others on the pool. If a task fails, the tasks still running
+	 * are cancelled and the exception of the first failed task in list order is rethrown.
+	 *
+	 * @return the results in the order of the tasks
+	 */
+	public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+		List<T> results = new ArrayList<>(tasks.size());
+		if (tasks.isEmpty()) {
+			return results;
+		}
+		List<FutureTask<T>> futures = new ArrayList<>(tasks.size() - 1);
+		try {
+			for (int i = 1; i < tasks.size(); i++) {
+				FutureTask<T> future = new FutureTask<>(tasks.get(i));
+				futures.add(future);
+				executor.execute(future);
+			}
+			results.add(tasks.get(0).call());
+			for (FutureTask<T> future : futures) {
+				if (executor.remove(future)) {
+					// no pool thread picked it up yet, do not wait for one
+					future.run();
+				}
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("interrupted while waiting for concurrent routing requests", e);
+		} catch (ExecutionException e) {
+			throw asRuntimeException(e.getCause());
+		} catch (Exception e) {
+			throw asRuntimeException(e);
+		} finally {
+			// do not leave tasks of a failed routing job running
+			futures.forEach(future -> future.cancel(true));
+		}
+		return results;
+	}
+
+	private static RuntimeException asRuntimeException(Throwable throwable) {
+		if (throwable instanceof RuntimeException runtimeException) {
+			return runtimeException;
+		} else if (throwable instanceof Error error) {
+			throw error;
+		}
+		return new RuntimeException(throwable);
+	}
+
+	public int getNumberOfThreads() {
+		return executor.getMaximumPoolSize();
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,61 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.routing;
+
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.drt.fare.DrtFareParams;
+import org.matsim.core.utils.misc.OptionalTime;
+
+/**
+ * Distance fare, time fare and base fare, but at least the min fare per trip, as configured in the
+ * {@link DrtFareParams}. The coefficients are copied once, so no config lookups are necessary per leg.
+ *
+ * @author vsp-gleich
+ */
+final class DefaultDrtFareModel implements DrtFareModel {
+
+	private final double distanceFare_m;
+	private final double timeFare_h;
+	private final double baseFare;
+	private final double minFarePerTrip;
+
+	DefaultDrtFareModel(DrtFareParams drtFareParams) {
+		this.distanceFare_m = drtFareParams.getDistanceFare_m();
+		this.timeFare_h = drtFareParams.getTimeFare_h();
+		this.baseFare = drtFareParams.getBaseFare();
+		this.minFarePerTrip = drtFareParams.getMinFarePerTrip();
+	}
+
+	@Override
+	public double calcFare(Leg leg, Person person) {
+		double distance = leg.getRoute().getDistance();
+		OptionalTime travelTime = leg.getTravelTime();
+		double fare = 0.;
+		if (distance != 0.) {
+			fare += distanceFare_m * distance;
+		}
+		if (travelTime.isDefined()) {
+			fare += timeFare_h * travelTime.seconds() / 3600.;
+		}
+		fare += baseFare;
+		return Math.max(fare, minFarePerTrip);
+	}
+}
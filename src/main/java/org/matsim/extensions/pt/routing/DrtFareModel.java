@@ -0,0 +1,44 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.routing;
+
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+
+/**
+ * Estimates the fare of a drt access/egress leg in {@link EnhancedRaptorIntermodalAccessEgress}. Resolved once per drt
+ * mode at injection time. By default {@link DefaultDrtFareModel} is used for every drt mode with DrtFareParams. Other
+ * fare models, e.g. zonal fares by the start and end link of the leg route or fares depending on the person, can be
+ * plugged in per drt mode using a MapBinder:
+ * <pre>
+ * MapBinder.newMapBinder(binder(), String.class, DrtFareModel.class).addBinding("drt").toInstance(myFareModel);
+ * </pre>
+ *
+ * @author vsp-gleich
+ */
+public interface DrtFareModel {
+
+	/**
+	 * @param leg the access/egress leg with its route (start and end link, distance) and travel time, if known
+	 * @param person the person routed
+	 * @return the fare in monetary units (positive)
+	 */
+	double calcFare(Leg leg, Person person);
+}
@@ -15,24 +15,28 @@ import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.PlanElement;
-import org.matsim.contrib.drt.fare.DrtFareParams;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.run.MultiModeDrtConfigGroup;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.IterationCounter;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.scoring.functions.ScoringParameters;
 import org.matsim.core.scoring.functions.ScoringParametersForPerson;
+import org.matsim.core.scoring.functions.SubpopulationScoringParameters;
 import org.matsim.core.utils.misc.OptionalTime;
 import org.matsim.extensions.pt.PtExtensionsConfigGroup;
 import org.matsim.extensions.pt.PtExtensionsConfigGroup.IntermodalAccessEgressModeUtilityRandomization;
 import org.matsim.extensions.pt.fare.intermodalTripFareCompensator.IntermodalTripFareCompensatorConfigGroup;
 import org.matsim.extensions.pt.fare.intermodalTripFareCompensator.IntermodalTripFareCompensatorsConfigGroup;
+import org.matsim.extensions.pt.routing.ptRoutingModes.PtIntermodalRoutingModesConfigGroup;
+import org.matsim.extensions.pt.routing.ptRoutingModes.PtRoutingStatistics;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A default implementation of {@link RaptorIntermodalAccessEgress} returning a new RIntermodalAccessEgress,
@@ -55,6 +59,25 @@ public class EnhancedRaptorIntermodalAccessEgress implements RaptorIntermodalAcc
 
 	Random random = MatsimRandom.getLocalInstance();
 
+	// randomization derived from a seed per iteration, person, trip, direction and mode, independent of threads
+	private final boolean deterministicRandomization;
+	private final long randomSeed;
+	private IterationCounter iterationCounter = null;
+
+	// resolved once, so the access/egress candidates are only attributed to routing modes if statistics are written
+	private final boolean recordRoutingStatistics;
+
+	// quantized cache of the deterministic part of the leg disutility, null if disabled. Only used with scoring parameters
+	// per subpopulation, so the number of keys is bounded by subpopulations x modes x bins and no per-person
+	// parameters are pinned in memory
+	private record LegCostKey(ScoringParameters scoringParams, String mode, long distanceBin, long travelTimeBin) {
+	}
+	private final Map<LegCostKey, Double> legCostCache;
+	private final double legCostCacheDistanceBinSize;
+	private final double legCostCacheTravelTimeBinSize;
+	// drt modes without fare are not contained
+	private final Map<String, DrtFareModel> mode2DrtFareModel = new HashMap<>();
+
 	@Inject
     EnhancedRaptorIntermodalAccessEgress(Config config, ScoringParametersForPerson parametersForPerson) {
 		this.config = config;
@@ -63,11 +86,42 @@ public class EnhancedRaptorIntermodalAccessEgress implements RaptorIntermodalAcc
 		this.interModalTripFareCompensatorsCfg = ConfigUtils.addOrGetModule(config,
 				IntermodalTripFareCompensatorsConfigGroup.class);
 		this.parametersForPerson = parametersForPerson;
+		if (ptExtensionsCfg.isIntermodalAccessEgressLegCostCacheEnabled() && !(parametersForPerson instanceof SubpopulationScoringParameters)) {
+			log.warn("intermodal access/egress leg cost cache disabled, because the scoring parameters of "
+					+ parametersForPerson.getClass().getName() + " may differ per person.");
+		}
+		this.legCostCache = ptExtensionsCfg.isIntermodalAccessEgressLegCostCacheEnabled()
+				&& parametersForPerson instanceof SubpopulationScoringParameters ? new ConcurrentHashMap<>() : null;
+		this.legCostCacheDistanceBinSize = ptExtensionsCfg.getIntermodalAccessEgressLegCostCacheDistanceBinSize_m();
+		this.legCostCacheTravelTimeBinSize = ptExtensionsCfg.getIntermodalAccessEgressLegCostCacheTravelTimeBinSize_s();
+		for (DrtConfigGroup drtConfig : multiModeDrtConfigGroup.getModalElements()) {
+			drtConfig.getDrtFareParams().ifPresent(drtFareParams -> mode2DrtFareModel.put(drtConfig.getMode(), new DefaultDrtFareModel(drtFareParams)));
+		}
+		this.deterministicRandomization = ptExtensionsCfg.isDeterministicIntermodalAccessEgressRandomization();
+		this.randomSeed = config.global().getRandomSeed();
+		this.recordRoutingStatistics = ConfigUtils.addOrGetModule(config, PtIntermodalRoutingModesConfigGroup.class)
+				.getWriteRoutingStatistics();
+	}
+
+	/**
+	 * Replaces the default fare models of the given drt modes, e.g. by zonal fares.
+	 */
+	@Inject(optional = true)
+	void setDrtFareModels(Map<String, DrtFareModel> mode2DrtFareModel) {
+		this.mode2DrtFareModel.putAll(mode2DrtFareModel);
+	}
+
+	@Inject(optional = true)
+	void setIterationCounter(IterationCounter iterationCounter) {
+		this.iterationCounter = iterationCounter;
 	}
 
 	@Override
     public RIntermodalAccessEgress calcIntermodalAccessEgress( final List<? extends PlanElement> legs, RaptorParameters params, Person person,
                                                                RaptorStopFinder.Direction direction) {
+		if (recordRoutingStatistics) {
+			PtRoutingStatistics.recordAccessEgressCandidate();
+		}
 		// maybe nicer using raptor parameters per person ?
 		ScoringParameters scoringParams = this.parametersForPerson.getScoringParameters(person);
 		
@@ -78,52 +132,16 @@ public class EnhancedRaptorIntermodalAccessEgress implements RaptorIntermodalAcc
                 String mode = ((Leg) pe).getMode();
 				OptionalTime travelTime = ((Leg) pe).getTravelTime();
 
-                // overrides individual parameters per person; use default scoring parameters
+				double distance = ((Leg)pe).getRoute().getDistance();
                 if (travelTime.isDefined()) {
                     tTime += travelTime.seconds();
-					utility += travelTime.seconds() * (scoringParams.modeParams
-							.get(mode)
-							.marginalUtilityOfTraveling_s + (-1) * scoringParams.marginalUtilityOfPerforming_s);
-				}
-				double distance = ((Leg)pe).getRoute().getDistance();
-				if (distance != 0.) {
-					utility += distance * scoringParams.modeParams.get(mode).marginalUtilityOfDistance_m;
-					utility += distance
-							* scoringParams.modeParams.get(mode).monetaryDistanceCostRate
-							* scoringParams.marginalUtilityOfMoney;
-				}
-				utility += scoringParams.modeParams.get(mode).constant;
-
-				// account for drt fares
-				for (DrtConfigGroup drtConfig : multiModeDrtConfigGroup.getModalElements()) {
-					if (drtConfig.getMode().equals(mode)) {
-						// skip this leg if the drt mode has no fare
-						if (drtConfig.getDrtFareParams().isEmpty()) break;
-						DrtFareParams drtFareParams = drtConfig.getDrtFareParams().get();
-						double fare = 0.;
-						if (distance != 0.) {
-							fare += drtFareParams.getDistanceFare_m() * distance;
-						}
-
-						if (travelTime.isDefined()) {
-							fare += drtFareParams.getTimeFare_h() * travelTime.seconds() / 3600.;
-
-						}
-
-						fare += drtFareParams.getBaseFare();
-						fare = Math.max(fare, drtFareParams.getMinFarePerTrip());
-						utility += -1. * fare * scoringParams.marginalUtilityOfMoney;
-					}
                 }
-                
-                // account for intermodal trip fare compensations
-                for (IntermodalTripFareCompensatorConfigGroup compensatorCfg : interModalTripFareCompensatorsCfg.getIntermodalTripFareCompensatorConfigGroups()) {
-                	if (compensatorCfg.getNonPtModes().contains(mode) && compensatorCfg.getPtModes().contains(TransportMode.pt)) {
-                		// the following is a compensation, thus positive!
-                		utility += compensatorCfg.getCompensationMoneyPerTrip() * scoringParams.marginalUtilityOfMoney;
-						utility += compensatorCfg.getCompensationScorePerTrip();
-                	}
+                if (legCostCache != null) {
+                    utility += calcCachedDeterministicUtility(scoringParams, mode, travelTime, distance);
+                } else {
+                    utility += calcDeterministicUtility(scoringParams, mode, travelTime, distance);
                 }
+                utility += calcDrtFareUtility(scoringParams, (Leg) pe, person);
 
                 //check whether the same agent was already handled for the same direction (for each trip it should always first handle all access stops and then all egress stops)
                 // assumes that the RaptorStopFinder handles by person, then by direction, then by mode for each routing request (what DefaultRaptorStopFinder does)
@@ -136,7 +154,9 @@ public class EnhancedRaptorIntermodalAccessEgress implements RaptorIntermodalAcc
 
                 // apply randomization to utility if applicable;
                 IntermodalAccessEgressModeUtilityRandomization randomization = ptExtensionsCfg.getIntermodalAccessEgressModeUtilityRandomization(mode);
-                if (randomization != null) {
+                if (randomization != null && deterministicRandomization) {
+                    utility += calcSeededRandomization(randomization, (Leg) pe, legs, person, direction);
+                } else if (randomization != null) {
                 	double utilityRandomizationSigma = randomization.getAdditiveRandomizationWidth();
 					if (utilityRandomizationSigma != 0.0) {
 						utility += (random.nextDouble() - 0.5) * utilityRandomizationSigma;
@@ -170,4 +190,118 @@ public class EnhancedRaptorIntermodalAccessEgress implements RaptorIntermodalAcc
         }
         return new RIntermodalAccessEgress(legs, -utility, tTime, direction);
     }
+
+	/**
+	 * Same distributions as the randomization drawn from {@link #random}, but each value is a pure function of the
+	 * global seed, the iteration, the person, the trip, the direction and the mode, so it does not depend on which
+	 * thread routes which person in which order. The trip is identified by the departure time of the first access/egress
+	 * leg, which is the departure time of the routing request.
+	 */
+	private double calcSeededRandomization(IntermodalAccessEgressModeUtilityRandomization randomization, Leg leg,
+										   List<? extends PlanElement> legs, Person person, RaptorStopFinder.Direction direction) {
+		Integer iteration = iterationCounter == null ? null : iterationCounter.getIterationNumber();
+		double tripDepartureTime = 0.;
+		for (PlanElement pe : legs) {
+			if (pe instanceof Leg) {
+				tripDepartureTime = ((Leg) pe).getDepartureTime().orElse(0.);
+				break;
+			}
+		}
+		long seed = mix(randomSeed);
+		seed = mix(seed ^ (iteration == null ? 0 : iteration));
+		seed = mix(seed ^ person.getId().toString().hashCode());
+		seed = mix(seed ^ Double.doubleToLongBits(tripDepartureTime));
+		seed = mix(seed ^ direction.ordinal());
+		seed = mix(seed ^ leg.getMode().hashCode());
+
+		double additiveRandomization = 0.;
+		double utilityRandomizationSigma = randomization.getAdditiveRandomizationWidth();
+		if (utilityRandomizationSigma != 0.0) {
+			// different for each stop, i.e. each leg route
+			long legSeed = seed;
+			if (leg.getRoute() != null) {
+				legSeed = mix(legSeed ^ String.valueOf(leg.getRoute().getStartLinkId()).hashCode());
+				legSeed = mix(legSeed ^ String.valueOf(leg.getRoute().getEndLinkId()).hashCode());
+			}
+			additiveRandomization += (toUnitInterval(mix(legSeed ^ 1)) - 0.5) * utilityRandomizationSigma;
+		}
+		double utilityRandomizationSigmaFrozenPerDirectionAndMode = randomization.getAdditiveRandomizationWidthFrozenPerDirectionAndMode();
+		if (utilityRandomizationSigmaFrozenPerDirectionAndMode != 0.0) {
+			additiveRandomization += (toUnitInterval(mix(seed ^ 2)) - 0.5) * utilityRandomizationSigmaFrozenPerDirectionAndMode;
+		}
+		return additiveRandomization;
+	}
+
+	/**
+	 * finalizer of SplitMix64
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static double toUnitInterval(long z) {
+		return (z >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Looks up the deterministic disutility of a leg with distance and travel time rounded to the configured bins.
+	 */
+	private double calcCachedDeterministicUtility(ScoringParameters scoringParams, String mode, OptionalTime travelTime, double distance) {
+		long distanceBin = Math.round(distance / legCostCacheDistanceBinSize);
+		long travelTimeBin = travelTime.isDefined() ? Math.round(travelTime.seconds() / legCostCacheTravelTimeBinSize) : -1;
+		LegCostKey key = new LegCostKey(scoringParams, mode, distanceBin, travelTimeBin);
+		Double utility = legCostCache.get(key);
+		if (utility != null) {
+			return utility;
+		}
+		utility = calcDeterministicUtility(scoringParams, mode,
+				travelTimeBin < 0 ? OptionalTime.undefined() : OptionalTime.defined(travelTimeBin * legCostCacheTravelTimeBinSize),
+				distanceBin * legCostCacheDistanceBinSize);
+		legCostCache.putIfAbsent(key, utility);
+		return utility;
+	}
+
+	/**
+	 * Utility of a leg without randomization and drt fare, i.e. from travel time, distance, mode constant and
+	 * intermodal trip fare compensations.
+	 */
+	private double calcDeterministicUtility(ScoringParameters scoringParams, String mode, OptionalTime travelTime, double distance) {
+		double utility = 0.0;
+		// overrides individual parameters per person; use default scoring parameters
+		if (travelTime.isDefined()) {
+			utility += travelTime.seconds() * (scoringParams.modeParams
+					.get(mode)
+					.marginalUtilityOfTraveling_s + (-1) * scoringParams.marginalUtilityOfPerforming_s);
+		}
+		if (distance != 0.) {
+			utility += distance * scoringParams.modeParams.get(mode).marginalUtilityOfDistance_m;
+			utility += distance
+					* scoringParams.modeParams.get(mode).monetaryDistanceCostRate
+					* scoringParams.marginalUtilityOfMoney;
+		}
+		utility += scoringParams.modeParams.get(mode).constant;
+
+		// account for intermodal trip fare compensations
+		for (IntermodalTripFareCompensatorConfigGroup compensatorCfg : interModalTripFareCompensatorsCfg.getIntermodalTripFareCompensatorConfigGroups()) {
+			if (compensatorCfg.getNonPtModes().contains(mode) && compensatorCfg.getPtModes().contains(TransportMode.pt)) {
+				// the following is a compensation, thus positive!
+				utility += compensatorCfg.getCompensationMoneyPerTrip() * scoringParams.marginalUtilityOfMoney;
+				utility += compensatorCfg.getCompensationScorePerTrip();
+			}
+		}
+		return utility;
+	}
+
+	/**
+	 * Not cached, since the fare may depend on the origin, destination or person, e.g. with zonal fares.
+	 */
+	private double calcDrtFareUtility(ScoringParameters scoringParams, Leg leg, Person person) {
+		DrtFareModel drtFareModel = mode2DrtFareModel.get(leg.getMode());
+		if (drtFareModel == null) {
+			return 0.;
+		}
+		return -1. * drtFareModel.calcFare(leg, person) * scoringParams.marginalUtilityOfMoney;
+	}
 }
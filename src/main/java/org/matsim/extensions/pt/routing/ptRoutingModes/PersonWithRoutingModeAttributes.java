@@ -0,0 +1,167 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.routing.ptRoutingModes;
+
+import com.google.common.collect.ImmutableMap;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request-scoped, read-only view of a person in which the person filter attributes of an intermodal routing mode
+ * overlay the attributes of the person. The person itself is never modified, so several routing modes can route trips
+ * of the same person concurrently.
+ * <p>
+ * Views use identity equality like the persons they wrap, since views of the same person with different routing mode
+ * attributes must not be confused. Per-person caches should be keyed by {@link #getId()} and
+ * {@link #getRoutingModeAttributes()}.
+ *
+ * @author vsp-gleich
+ */
+final class PersonWithRoutingModeAttributes implements Person {
+
+	private final Person person;
+	private final ImmutableMap<String, Object> routingModeAttributes;
+	private final Attributes attributes;
+
+	PersonWithRoutingModeAttributes(Person person, ImmutableMap<String, Object> routingModeAttributes) {
+		this.person = person;
+		this.routingModeAttributes = routingModeAttributes;
+		this.attributes = new OverlayAttributes(person.getAttributes(), routingModeAttributes);
+	}
+
+	/**
+	 * @return the person this is a view of
+	 */
+	Person getPerson() {
+		return person;
+	}
+
+	/**
+	 * @return the person filter attributes of the routing mode overlaying the attributes of the person
+	 */
+	ImmutableMap<String, Object> getRoutingModeAttributes() {
+		return routingModeAttributes;
+	}
+
+	@Override
+	public Id<Person> getId() {
+		return person.getId();
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return attributes;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		return person.getCustomAttributes();
+	}
+
+	@Override
+	public List<? extends Plan> getPlans() {
+		return Collections.unmodifiableList(person.getPlans());
+	}
+
+	@Override
+	public Plan getSelectedPlan() {
+		return person.getSelectedPlan();
+	}
+
+	@Override
+	public boolean addPlan(Plan p) {
+		throw new UnsupportedOperationException("read-only view of person " + person.getId() + " for routing");
+	}
+
+	@Override
+	public boolean removePlan(Plan p) {
+		throw new UnsupportedOperationException("read-only view of person " + person.getId() + " for routing");
+	}
+
+	@Override
+	public void setSelectedPlan(Plan selectedPlan) {
+		throw new UnsupportedOperationException("read-only view of person " + person.getId() + " for routing");
+	}
+
+	@Override
+	public Plan createCopyOfSelectedPlanAndMakeSelected() {
+		throw new UnsupportedOperationException("read-only view of person " + person.getId() + " for routing");
+	}
+
+	@Override
+	public String toString() {
+		return person.toString();
+	}
+
+	private static final class OverlayAttributes implements Attributes {
+		private final Attributes attributes;
+		private final ImmutableMap<String, Object> overlay;
+
+		private OverlayAttributes(Attributes attributes, ImmutableMap<String, Object> overlay) {
+			this.attributes = attributes;
+			this.overlay = overlay;
+		}
+
+		@Override
+		public Object getAttribute(String attribute) {
+			Object value = overlay.get(attribute);
+			return value != null ? value : attributes.getAttribute(attribute);
+		}
+
+		@Override
+		public Map<String, Object> getAsMap() {
+			Map<String, Object> map = new HashMap<>(attributes.getAsMap());
+			map.putAll(overlay);
+			return Collections.unmodifiableMap(map);
+		}
+
+		@Override
+		public int size() {
+			return getAsMap().size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return overlay.isEmpty() && attributes.isEmpty();
+		}
+
+		@Override
+		public Object putAttribute(String attribute, Object value) {
+			throw new UnsupportedOperationException("person attributes are read-only during routing");
+		}
+
+		@Override
+		public Object removeAttribute(String attribute) {
+			throw new UnsupportedOperationException("person attributes are read-only during routing");
+		}
+
+		@Override
+		public void clear() {
+			throw new UnsupportedOperationException("person attributes are read-only during routing");
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.routing.ptRoutingModes;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.router.RoutingModule;
+import org.matsim.core.router.RoutingRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pools of delegate routing modules shared by all {@link PtRoutingModeWrapper}s with the same delegate mode. Instead of
+ * one delegate per routing mode and {@link org.matsim.core.router.TripRouter}, a delegate is borrowed from the pool for
+ * the duration of a single routing request, so it is only used by one thread at a time. The number of delegates is
+ * bounded by the number of concurrent routing requests, independent of the number of routing modes, and the delegates
+ * are kept across iterations.
+ *
+ * @author vsp-gleich
+ */
+final class PooledDelegateRoutingModules {
+
+	private static final Logger log = LogManager.getLogger(PooledDelegateRoutingModules.class);
+
+	private final Map<String, Provider<RoutingModule>> routingModuleProviders;
+	private final Map<String, PooledRoutingModule> delegateMode2PooledRoutingModule = new ConcurrentHashMap<>();
+
+	@Inject
+	PooledDelegateRoutingModules(Map<String, Provider<RoutingModule>> routingModuleProviders) {
+		this.routingModuleProviders = routingModuleProviders;
+	}
+
+	RoutingModule get(String delegateMode) {
+		return delegateMode2PooledRoutingModule.computeIfAbsent(delegateMode, mode -> {
+			Provider<RoutingModule> provider = routingModuleProviders.get(mode);
+			if (provider == null) {
+				throw new IllegalStateException("no routing module bound for delegate mode " + mode);
+			}
+			return new PooledRoutingModule(mode, provider);
+		});
+	}
+
+	private static final class PooledRoutingModule implements RoutingModule {
+		private final String delegateMode;
+		private final Provider<RoutingModule> provider;
+		private final ConcurrentLinkedDeque<RoutingModule> idleDelegates = new ConcurrentLinkedDeque<>();
+		private final AtomicInteger createdDelegates = new AtomicInteger();
+
+		private PooledRoutingModule(String delegateMode, Provider<RoutingModule> provider) {
+			this.delegateMode = delegateMode;
+			this.provider = provider;
+		}
+
+		@Override
+		public List<? extends PlanElement> calcRoute(RoutingRequest request) {
+			// last in, first out: the most recently used delegate has the warmest caches
+			RoutingModule delegate = idleDelegates.pollFirst();
+			if (delegate == null) {
+				delegate = provider.get();
+				log.info("created delegate routing module #" + createdDelegates.incrementAndGet() + " for delegate mode " + delegateMode);
+			}
+			try {
+				return delegate.calcRoute(request);
+			} finally {
+				idleDelegates.offerFirst(delegate);
+			}
+		}
+	}
+}
@@ -34,7 +34,16 @@ public class PtIntermodalRoutingModesConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = LogManager.getLogger(PtIntermodalRoutingModesConfigGroup.class);
     public static final String GROUP = "ptIntermodalRoutingModes";
 
-    private final Map<String, PtIntermodalRoutingModeParameterSet> routingMode2PtIntermodalRoutingModeParameterSet = new HashMap<>();
+    private static final String PARAM_SHARED_ACCESS_EGRESS_MODES = "sharedAccessEgressModes";
+    private static final String PARAM_SHARED_ACCESS_EGRESS_LEGS_CACHE_SIZE = "sharedAccessEgressLegsCacheSize";
+    private static final String PARAM_WRITE_ROUTING_STATISTICS = "writeRoutingStatistics";
+    private static final String PARAM_SHARE_DELEGATE_ROUTING_MODULES = "shareDelegateRoutingModules";
+
+    private final Map<String, PtIntermodalRoutingModeParameterSet> routingMode2PtIntermodalRoutingModeParameterSet = new LinkedHashMap<>();
+    private Set<String> sharedAccessEgressModes = new LinkedHashSet<>();
+    private int sharedAccessEgressLegsCacheSize = 100_000;
+    private boolean writeRoutingStatistics = false;
+    private boolean shareDelegateRoutingModules = false;
 
     public PtIntermodalRoutingModesConfigGroup() {
         super(GROUP);
@@ -71,6 +80,76 @@ public class PtIntermodalRoutingModesConfigGroup extends ReflectiveConfigGroup {
         return this.routingMode2PtIntermodalRoutingModeParameterSet.values();
     }
 
+    @StringGetter(PARAM_SHARED_ACCESS_EGRESS_MODES)
+    public String getSharedAccessEgressModesAsString() {
+        return String.join(",", sharedAccessEgressModes);
+    }
+
+    @StringSetter(PARAM_SHARED_ACCESS_EGRESS_MODES)
+    public void setSharedAccessEgressModesAsString(String sharedAccessEgressModes) {
+        this.sharedAccessEgressModes = new LinkedHashSet<>();
+        for (String mode : sharedAccessEgressModes.split(",")) {
+            if (!mode.isBlank()) {
+                this.sharedAccessEgressModes.add(mode.trim());
+            }
+        }
+    }
+
+    public Set<String> getSharedAccessEgressModes() {
+        return sharedAccessEgressModes;
+    }
+
+    public void setSharedAccessEgressModes(Set<String> sharedAccessEgressModes) {
+        this.sharedAccessEgressModes = new LinkedHashSet<>(sharedAccessEgressModes);
+    }
+
+    @StringGetter(PARAM_SHARED_ACCESS_EGRESS_LEGS_CACHE_SIZE)
+    public int getSharedAccessEgressLegsCacheSize() {
+        return sharedAccessEgressLegsCacheSize;
+    }
+
+    @StringSetter(PARAM_SHARED_ACCESS_EGRESS_LEGS_CACHE_SIZE)
+    public void setSharedAccessEgressLegsCacheSize(int sharedAccessEgressLegsCacheSize) {
+        this.sharedAccessEgressLegsCacheSize = sharedAccessEgressLegsCacheSize;
+    }
+
+    @StringGetter(PARAM_WRITE_ROUTING_STATISTICS)
+    public boolean getWriteRoutingStatistics() {
+        return writeRoutingStatistics;
+    }
+
+    @StringSetter(PARAM_WRITE_ROUTING_STATISTICS)
+    public void setWriteRoutingStatistics(boolean writeRoutingStatistics) {
+        this.writeRoutingStatistics = writeRoutingStatistics;
+    }
+
+    @StringGetter(PARAM_SHARE_DELEGATE_ROUTING_MODULES)
+    public boolean getShareDelegateRoutingModules() {
+        return shareDelegateRoutingModules;
+    }
+
+    @StringSetter(PARAM_SHARE_DELEGATE_ROUTING_MODULES)
+    public void setShareDelegateRoutingModules(boolean shareDelegateRoutingModules) {
+        this.shareDelegateRoutingModules = shareDelegateRoutingModules;
+    }
+
+    @Override
+    public Map<String, String> getComments() {
+        Map<String, String> map = super.getComments();
+        map.put(PARAM_SHARE_DELEGATE_ROUTING_MODULES, "If true, all routing modes with the same delegate mode borrow delegate routing modules "
+                + "from a shared pool for each routing request instead of each holding its own delegate per TripRouter. Reduces startup time "
+                + "and heap by roughly the number of routing modes. The pooled delegates are kept across iterations, so only use this if the "
+                + "delegate routing module holds no per-iteration state (true for SwissRailRaptor). Default false.");
+        map.put(PARAM_WRITE_ROUTING_STATISTICS, "If true, calls, latency, failed routes and evaluated access/egress candidates are recorded per routing mode "
+                + "and written to " + PtRoutingStatistics.FILENAME + " in each iteration output directory. Default false.");
+        map.put(PARAM_SHARED_ACCESS_EGRESS_MODES, "Comma-separated access/egress modes (typically walk) whose legs to and from the candidate stops "
+                + "are routed only once per trip and shared by all routing modes, instead of once per routing mode. Only list modes whose "
+                + "legs do not depend on the person filter attributes of the routing modes. Replaces the RaptorStopFinder binding, so "
+                + "PtIntermodalRoutingModesModule has to be added as overriding module. Empty (default) disables sharing.");
+        map.put(PARAM_SHARED_ACCESS_EGRESS_LEGS_CACHE_SIZE, "Maximum number of shared access/egress legs kept. The legs are discarded at the start of each iteration.");
+        return map;
+    }
+
     public static class PtIntermodalRoutingModeParameterSet extends ReflectiveConfigGroup {
 
         private static final String TYPE = "ptIntermodalRoutingMode";
@@ -178,8 +257,8 @@ public class PtIntermodalRoutingModesConfigGroup extends ReflectiveConfigGroup {
         @Override
         public Map<String, String> getComments() {
             Map<String, String> map = super.getComments();
-            map.put(PARAM_PERSON_FILTER_ATTRIBUTE, "Name of the person attribute added before calling the routing module of the delegate mode. The attribute is removed immediately after routing. Should be the same attribute as in the IntermodalAccessEgressParameterSet of the SwissRailRaptorConfigGroup.");
-            map.put(PARAM_PERSON_FILTER_VALUE, "Value of the person attribute added before calling the routing module of the delegate mode.");
+            map.put(PARAM_PERSON_FILTER_ATTRIBUTE, "Name of the person attribute set when calling the routing module of the delegate mode. The attribute is only visible to the delegate routing module, the person itself is not modified. Should be the same attribute as in the IntermodalAccessEgressParameterSet of the SwissRailRaptorConfigGroup.");
+            map.put(PARAM_PERSON_FILTER_VALUE, "Value of the person attribute set when calling the routing module of the delegate mode.");
           return map;
         }
 	}
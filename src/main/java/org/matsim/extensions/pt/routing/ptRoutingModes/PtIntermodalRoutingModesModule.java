@@ -19,8 +19,11 @@
 
 package org.matsim.extensions.pt.routing.ptRoutingModes;
 
+import ch.sbb.matsim.routing.pt.raptor.RaptorStopFinder;
+import com.google.inject.Singleton;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.AbstractModule;
+import org.matsim.extensions.pt.routing.ConcurrentRoutingExecutor;
 
 /**
  * 
@@ -35,6 +38,23 @@ public class PtIntermodalRoutingModesModule extends AbstractModule {
 		ptIntermodalRoutingModesConfigGroup.getPtIntermodalRoutingModeParameterSets()
 				.forEach(ptIntermodalRoutingModeConfigGroup -> addRoutingModuleBinding(
 						ptIntermodalRoutingModeConfigGroup.getRoutingMode())
-								.toProvider(new PtRoutingModeWrapperProvider(ptIntermodalRoutingModeConfigGroup)));
+								.toProvider(new PtRoutingModeWrapperProvider(ptIntermodalRoutingModeConfigGroup,
+										ptIntermodalRoutingModesConfigGroup.getWriteRoutingStatistics(),
+										ptIntermodalRoutingModesConfigGroup.getShareDelegateRoutingModules())));
+		// not a singleton, every injection gets its own delegate routing modules
+		bind(PtIntermodalRoutingModesRouter.class);
+		bind(PooledDelegateRoutingModules.class).in(Singleton.class);
+		addControlerListenerBinding().to(ConcurrentRoutingExecutor.class);
+
+		if (ptIntermodalRoutingModesConfigGroup.getWriteRoutingStatistics()) {
+			bind(PtRoutingStatistics.class).in(Singleton.class);
+			addControlerListenerBinding().to(PtRoutingStatistics.class);
+		}
+
+		if (!ptIntermodalRoutingModesConfigGroup.getSharedAccessEgressModes().isEmpty()) {
+			bind(SharedAccessEgressLegs.class).in(Singleton.class);
+			addControlerListenerBinding().to(SharedAccessEgressLegs.class);
+			bind(RaptorStopFinder.class).toProvider(SharedAccessEgressStopFinderProvider.class);
+		}
 	}
 }
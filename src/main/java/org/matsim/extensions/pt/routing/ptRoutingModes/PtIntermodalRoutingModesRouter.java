@@ -0,0 +1,92 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.routing.ptRoutingModes;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.router.RoutingModule;
+import org.matsim.core.router.RoutingRequest;
+import org.matsim.extensions.pt.routing.ConcurrentRoutingExecutor;
+import org.matsim.extensions.pt.routing.ptRoutingModes.PtIntermodalRoutingModesConfigGroup.PtIntermodalRoutingModeParameterSet;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * Routes one trip with all routing modes configured in the {@link PtIntermodalRoutingModesConfigGroup} concurrently,
+ * e.g. for mode choice strategies which need to compare pt, pt_w_drt_allowed, pt_w_bike etc. for the same trip.
+ *
+ * Each instance holds its own {@link PtRoutingModeWrapper} per routing mode from the bound
+ * {@link PtRoutingModeWrapperProvider}. By default each wrapper has its own delegate routing module, so the routing
+ * modes of one trip never share a delegate. With shareDelegateRoutingModules the wrappers of all routing modes with the
+ * same delegate mode use one {@link PooledDelegateRoutingModules} pool instead; there exclusivity is guaranteed by the
+ * pool, which lends an idle delegate to exactly one request at a time and creates a new one if none is idle. An instance
+ * itself is not thread-safe and should be used by one thread only, like the {@link org.matsim.core.router.TripRouter}.
+ *
+ * @author vsp-gleich
+ */
+public final class PtIntermodalRoutingModesRouter {
+
+	private final ConcurrentRoutingExecutor executor;
+	private final Map<String, RoutingModule> routingMode2Router = new LinkedHashMap<>();
+
+	@Inject
+	PtIntermodalRoutingModesRouter(Config config, Map<String, Provider<RoutingModule>> routingModuleProviders,
+								   ConcurrentRoutingExecutor executor) {
+		this.executor = executor;
+		PtIntermodalRoutingModesConfigGroup ptIntermodalRoutingModesConfigGroup = ConfigUtils
+				.addOrGetModule(config, PtIntermodalRoutingModesConfigGroup.class);
+		for (PtIntermodalRoutingModeParameterSet routingModeParams : ptIntermodalRoutingModesConfigGroup.getPtIntermodalRoutingModeParameterSets()) {
+			// the bound PtRoutingModeWrapperProvider creates a new wrapper and, unless shared, a new delegate each time
+			Provider<RoutingModule> wrapperProvider = routingModuleProviders.get(routingModeParams.getRoutingMode());
+			if (wrapperProvider == null) {
+				throw new IllegalStateException("no routing module bound for routing mode " + routingModeParams.getRoutingMode());
+			}
+			routingMode2Router.put(routingModeParams.getRoutingMode(), wrapperProvider.get());
+		}
+	}
+
+	public Set<String> getRoutingModes() {
+		return Collections.unmodifiableSet(routingMode2Router.keySet());
+	}
+
+	/**
+	 * The first routing mode is routed in the calling thread, all others on the shared {@link ConcurrentRoutingExecutor}.
+	 *
+	 * @return the legs and interaction activities per routing mode, in the order of the config
+	 */
+	public Map<String, List<? extends PlanElement>> calcRoutes(RoutingRequest request) {
+		List<Callable<List<? extends PlanElement>>> tasks = new ArrayList<>(routingMode2Router.size());
+		for (RoutingModule router : routingMode2Router.values()) {
+			tasks.add(() -> router.calcRoute(request));
+		}
+		List<List<? extends PlanElement>> routes = executor.invokeAll(tasks);
+
+		Map<String, List<? extends PlanElement>> routingMode2Route = new LinkedHashMap<>();
+		Iterator<List<? extends PlanElement>> routeIterator = routes.iterator();
+		for (String routingMode : routingMode2Router.keySet()) {
+			routingMode2Route.put(routingMode, routeIterator.next());
+		}
+		return routingMode2Route;
+	}
+}
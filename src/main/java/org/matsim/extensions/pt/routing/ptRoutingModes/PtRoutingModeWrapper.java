@@ -19,8 +19,9 @@
 
 package org.matsim.extensions.pt.routing.ptRoutingModes;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.router.DefaultRoutingRequest;
 import org.matsim.core.router.RoutingModule;
 import org.matsim.core.router.RoutingRequest;
 import org.matsim.extensions.pt.routing.ptRoutingModes.PtIntermodalRoutingModesConfigGroup.PersonAttribute2ValuePair;
@@ -29,7 +30,10 @@ import org.matsim.extensions.pt.routing.ptRoutingModes.PtIntermodalRoutingModesC
 import java.util.List;
 
 /**
- * 
+ * Routes with the delegate routing module, but with the person filter attributes of the routing mode set. The
+ * attributes are only visible in a request-scoped view of the person, see {@link PersonWithRoutingModeAttributes}, so
+ * the person is never modified.
+ *
  * @author vsp-gleich
  *
  */
@@ -37,28 +41,52 @@ class PtRoutingModeWrapper implements RoutingModule {
 	
 	private final RoutingModule ptRouter;
 	private final PtIntermodalRoutingModeParameterSet routingModeParams;
-	private final ImmutableList<PersonAttribute2ValuePair> personAttribute2ValuePairs;
+	private final ImmutableMap<String, Object> personFilterAttributes;
+	private final PtRoutingStatistics.RoutingModeStatistics statistics;
 	
 	PtRoutingModeWrapper (PtIntermodalRoutingModeParameterSet routingModeParams, RoutingModule ptRouter) {
+		this(routingModeParams, ptRouter, null);
+	}
+
+	/**
+	 * @param routingStatistics null if no statistics should be recorded
+	 */
+	PtRoutingModeWrapper (PtIntermodalRoutingModeParameterSet routingModeParams, RoutingModule ptRouter, PtRoutingStatistics routingStatistics) {
 		this.routingModeParams = routingModeParams;
-		this.personAttribute2ValuePairs = ImmutableList.copyOf(routingModeParams.getPersonAttribute2ValuePairs());
+		ImmutableMap.Builder<String, Object> personFilterAttributesBuilder = ImmutableMap.builder();
+		for (PersonAttribute2ValuePair personAttribute2ValuePair : routingModeParams.getPersonAttribute2ValuePairs()) {
+			personFilterAttributesBuilder.put(personAttribute2ValuePair.getPersonFilterAttribute(),
+					personAttribute2ValuePair.getPersonFilterValue());
+		}
+		this.personFilterAttributes = personFilterAttributesBuilder.buildKeepingLast();
 		this.ptRouter = ptRouter;
+		this.statistics = routingStatistics == null ? null : routingStatistics.getRoutingModeStatistics(routingModeParams.getRoutingMode());
 	}
 
 	@Override
 	public List<? extends PlanElement> calcRoute(RoutingRequest request) {
-		for (PersonAttribute2ValuePair personAttribute2ValuePair: personAttribute2ValuePairs) {
-			request.getPerson().getAttributes().putAttribute(personAttribute2ValuePair.getPersonFilterAttribute(),
-					personAttribute2ValuePair.getPersonFilterValue());
+		if (statistics == null || PtRoutingStatistics.isSuspended()) {
+			return calcRouteWithPersonFilterAttributes(request);
 		}
+		long startNanos = System.nanoTime();
+		boolean failed = true;
+		statistics.enter();
+		try {
+			List<? extends PlanElement> route = calcRouteWithPersonFilterAttributes(request);
+			failed = route == null || route.isEmpty();
+			return route;
+		} finally {
+			statistics.exit(startNanos, failed);
+		}
+	}
 
-		List<? extends PlanElement> route = ptRouter.calcRoute(request);
-		
-		for (PersonAttribute2ValuePair personAttribute2ValuePair: personAttribute2ValuePairs) {
-			request.getPerson().getAttributes().removeAttribute(personAttribute2ValuePair.getPersonFilterAttribute());
+	private List<? extends PlanElement> calcRouteWithPersonFilterAttributes(RoutingRequest request) {
+		if (personFilterAttributes.isEmpty() || request.getPerson() == null) {
+			return ptRouter.calcRoute(request);
 		}
-		
-		return route;
+		return ptRouter.calcRoute(DefaultRoutingRequest.of(request.getFromFacility(), request.getToFacility(),
+				request.getDepartureTime(), new PersonWithRoutingModeAttributes(request.getPerson(), personFilterAttributes),
+				request.getAttributes()));
 	}
 
 }
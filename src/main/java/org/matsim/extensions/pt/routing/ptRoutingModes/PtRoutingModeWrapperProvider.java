@@ -34,15 +34,25 @@ import java.util.Map;
 class PtRoutingModeWrapperProvider implements Provider<RoutingModule> {
 	
 	private final PtIntermodalRoutingModeParameterSet routingModeParams;
+	private final boolean recordRoutingStatistics;
+	private final boolean shareDelegateRoutingModules;
 	@Inject private Map<String, Provider<RoutingModule>> routingModuleProviders;
+	@Inject private Provider<PtRoutingStatistics> routingStatisticsProvider;
+	@Inject private Provider<PooledDelegateRoutingModules> pooledDelegateRoutingModulesProvider;
 	
-	PtRoutingModeWrapperProvider(final PtIntermodalRoutingModeParameterSet routingModeParams) {
+	PtRoutingModeWrapperProvider(final PtIntermodalRoutingModeParameterSet routingModeParams, boolean recordRoutingStatistics,
+								 boolean shareDelegateRoutingModules) {
 		this.routingModeParams = routingModeParams;
+		this.recordRoutingStatistics = recordRoutingStatistics;
+		this.shareDelegateRoutingModules = shareDelegateRoutingModules;
 	}
 
 	@Override
 	public RoutingModule get() {
-		return new PtRoutingModeWrapper(routingModeParams, routingModuleProviders.get(routingModeParams.getDelegateMode()).get());
+		RoutingModule delegate = shareDelegateRoutingModules ?
+				pooledDelegateRoutingModulesProvider.get().get(routingModeParams.getDelegateMode()) :
+				routingModuleProviders.get(routingModeParams.getDelegateMode()).get();
+		return new PtRoutingModeWrapper(routingModeParams, delegate, recordRoutingStatistics ? routingStatisticsProvider.get() : null);
 	}
 
 }
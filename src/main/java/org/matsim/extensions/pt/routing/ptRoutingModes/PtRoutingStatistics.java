@@ -0,0 +1,254 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.routing.ptRoutingModes;
+
+import com.google.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.utils.io.IOUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records per routing mode and iteration the number of routing calls, their latency, the share of failed routes and
+ * the number of access/egress candidates evaluated by the {@link ch.sbb.matsim.routing.pt.raptor.RaptorIntermodalAccessEgress}
+ * while routing. Written to ptRoutingModeStatistics.csv in the iteration output directory.
+ *
+ * Only bound if {@link PtIntermodalRoutingModesConfigGroup#getWriteRoutingStatistics()} is set, otherwise the
+ * {@link PtRoutingModeWrapper} delegates without measuring and callers of {@link #recordAccessEgressCandidate()} skip
+ * the call, see {@link org.matsim.extensions.pt.routing.EnhancedRaptorIntermodalAccessEgress}.
+ *
+ * @author vsp-gleich
+ */
+public final class PtRoutingStatistics implements IterationEndsListener {
+
+	private static final Logger log = LogManager.getLogger(PtRoutingStatistics.class);
+	static final String FILENAME = "ptRoutingModeStatistics.csv";
+	private static final String SEP = ";";
+
+	/**
+	 * routing mode currently routed by this thread, set by the {@link PtRoutingModeWrapper} around its delegate call
+	 */
+	private static final ThreadLocal<RoutingModeStatistics> currentRoutingMode = new ThreadLocal<>();
+
+	/**
+	 * number of {@link #runWithoutStatistics} calls currently running; global, since routing may be spread over threads
+	 */
+	private static final AtomicInteger suspensions = new AtomicInteger();
+
+	private final Map<String, RoutingModeStatistics> routingMode2Statistics = new ConcurrentHashMap<>();
+	private final OutputDirectoryHierarchy controlerIO;
+
+	@Inject
+	PtRoutingStatistics(OutputDirectoryHierarchy controlerIO) {
+		this.controlerIO = controlerIO;
+	}
+
+	/**
+	 * To be called for each access/egress leg evaluated, attributed to the routing mode routed by the current thread.
+	 * Callers should check {@link PtIntermodalRoutingModesConfigGroup#getWriteRoutingStatistics()} once beforehand, so
+	 * the thread local is not looked up if no statistics are written.
+	 */
+	public static void recordAccessEgressCandidate() {
+		RoutingModeStatistics statistics = currentRoutingMode.get();
+		if (statistics != null) {
+			statistics.accessEgressCandidates.increment();
+		}
+	}
+
+	/**
+	 * Runs the given code without recording routing calls on any thread, e.g. to warm up routers before the first
+	 * iteration, which would otherwise be counted in the statistics of that iteration.
+	 */
+	public static void runWithoutStatistics(Runnable runnable) {
+		suspensions.incrementAndGet();
+		try {
+			runnable.run();
+		} finally {
+			suspensions.decrementAndGet();
+		}
+	}
+
+	static boolean isSuspended() {
+		return suspensions.get() > 0;
+	}
+
+	RoutingModeStatistics getRoutingModeStatistics(String routingMode) {
+		return routingMode2Statistics.computeIfAbsent(routingMode, m -> new RoutingModeStatistics());
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		String filename = controlerIO.getIterationFilename(event.getIteration(), FILENAME);
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write(String.join(SEP, "routingMode", "calls", "failedRoutes", "failedRoutesShare", "accessEgressCandidates",
+					"accessEgressCandidatesPerCall", "latencyMean_ms", "latencyP50_ms", "latencyP90_ms", "latencyP99_ms", "latencyMax_ms"));
+			writer.newLine();
+			for (Map.Entry<String, RoutingModeStatistics> entry : new TreeMap<>(routingMode2Statistics).entrySet()) {
+				writer.write(entry.getKey() + SEP + entry.getValue().toCsvAndReset(SEP));
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("wrote pt routing statistics to " + filename);
+	}
+
+	/**
+	 * Thread-safe counters of one routing mode.
+	 */
+	static final class RoutingModeStatistics {
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder failedRoutes = new LongAdder();
+		private final LongAdder accessEgressCandidates = new LongAdder();
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		void enter() {
+			currentRoutingMode.set(this);
+		}
+
+		void exit(long startNanos, boolean failed) {
+			currentRoutingMode.remove();
+			calls.increment();
+			if (failed) {
+				failedRoutes.increment();
+			}
+			latency.record((System.nanoTime() - startNanos) / 1000);
+		}
+
+		long getCalls() {
+			return calls.sum();
+		}
+
+		long getFailedRoutes() {
+			return failedRoutes.sum();
+		}
+
+		long getAccessEgressCandidates() {
+			return accessEgressCandidates.sum();
+		}
+
+		private String toCsvAndReset(String sep) {
+			long nCalls = calls.sumThenReset();
+			long nFailed = failedRoutes.sumThenReset();
+			long nCandidates = accessEgressCandidates.sumThenReset();
+			String csv = nCalls + sep + nFailed + sep + share(nFailed, nCalls) + sep + nCandidates + sep + share(nCandidates, nCalls)
+					+ sep + latency.getMean_us() / 1000. + sep + latency.getPercentile_us(0.5) / 1000.
+					+ sep + latency.getPercentile_us(0.9) / 1000. + sep + latency.getPercentile_us(0.99) / 1000.
+					+ sep + latency.getMax_us() / 1000.;
+			latency.reset();
+			return csv;
+		}
+
+		private static double share(long n, long total) {
+			return total == 0 ? 0. : (double) n / total;
+		}
+	}
+
+	/**
+	 * Log-linear histogram in the style of HdrHistogram: 8 linear sub-buckets per power of 2, i.e. values are recorded
+	 * with a relative error of at most 12.5%, in constant memory independent of the number of values.
+	 */
+	static final class LatencyHistogram {
+		private static final int SUB_BUCKET_BITS = 3;
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+		private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+		private final LongAdder sum = new LongAdder();
+		private final AtomicLong max = new AtomicLong();
+
+		void record(long value) {
+			value = Math.max(value, 0);
+			counts.incrementAndGet(bucketIndex(value));
+			sum.add(value);
+			max.accumulateAndGet(value, Math::max);
+		}
+
+		static int bucketIndex(long value) {
+			if (value < SUB_BUCKETS) {
+				return (int) value;
+			}
+			int magnitude = 63 - Long.numberOfLeadingZeros(value);
+			int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+			return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+		}
+
+		static long lowestValueInBucket(int index) {
+			if (index < SUB_BUCKETS) {
+				return index;
+			}
+			int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+			return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (magnitude - SUB_BUCKET_BITS);
+		}
+
+		/**
+		 * @return the highest value equivalent to the value at the given quantile, i.e. an upper bound
+		 */
+		long getPercentile_us(double quantile) {
+			long total = 0;
+			for (int i = 0; i < counts.length(); i++) {
+				total += counts.get(i);
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(quantile * total));
+			long seen = 0;
+			for (int i = 0; i < counts.length(); i++) {
+				seen += counts.get(i);
+				if (seen >= rank) {
+					return i + 1 < counts.length() ? Math.min(lowestValueInBucket(i + 1) - 1, max.get()) : max.get();
+				}
+			}
+			return max.get();
+		}
+
+		double getMean_us() {
+			long total = 0;
+			for (int i = 0; i < counts.length(); i++) {
+				total += counts.get(i);
+			}
+			return total == 0 ? 0. : (double) sum.sum() / total;
+		}
+
+		long getMax_us() {
+			return max.get();
+		}
+
+		void reset() {
+			for (int i = 0; i < counts.length(); i++) {
+				counts.set(i, 0);
+			}
+			sum.reset();
+			max.set(0);
+		}
+	}
+}
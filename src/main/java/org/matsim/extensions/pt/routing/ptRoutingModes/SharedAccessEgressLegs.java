@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.routing.ptRoutingModes;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.RoutingModule;
+import org.matsim.core.router.RoutingRequest;
+import org.matsim.facilities.Facility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Access/egress legs to and from the candidate stops of a trip, shared between all intermodal routing modes routing
+ * that trip. The walk candidates are typically the same for pt, pt_w_drt_allowed, pt_w_bike_allowed etc. and only
+ * the candidates of the access/egress mode enabled by the person filter attributes differ, so the common legs are
+ * routed once and each routing mode only routes its mode-specific legs.
+ *
+ * Legs are identified by mode, person, departure time, from and to facility, i.e. they are shared within a trip, and
+ * every caller gets its own copy. Thread-safe, concurrent requests for the same leg wait for the first one.
+ *
+ * @author vsp-gleich
+ */
+final class SharedAccessEgressLegs implements IterationStartsListener {
+
+	private static final Logger log = LogManager.getLogger(SharedAccessEgressLegs.class);
+
+	private record LegKey(String mode, Id<Person> personId, double departureTime, Id<Link> fromLinkId, Coord fromCoord,
+						  Id<Link> toLinkId, Coord toCoord) {
+	}
+
+	private final Set<String> sharedModes;
+	private final Cache<LegKey, Optional<List<? extends PlanElement>>> legs;
+
+	@Inject
+	SharedAccessEgressLegs(Config config) {
+		PtIntermodalRoutingModesConfigGroup ptIntermodalRoutingModesConfigGroup = ConfigUtils
+				.addOrGetModule(config, PtIntermodalRoutingModesConfigGroup.class);
+		this.sharedModes = Set.copyOf(ptIntermodalRoutingModesConfigGroup.getSharedAccessEgressModes());
+		this.legs = CacheBuilder.newBuilder()
+				.maximumSize(ptIntermodalRoutingModesConfigGroup.getSharedAccessEgressLegsCacheSize())
+				.recordStats()
+				.build();
+	}
+
+	boolean isShared(String mode) {
+		return sharedModes.contains(mode);
+	}
+
+	/**
+	 * @return a routing module returning the shared legs of the given mode, routed by the given routing module once
+	 */
+	RoutingModule wrap(String mode, RoutingModule routingModule) {
+		return request -> calcRoute(mode, routingModule, request);
+	}
+
+	private List<? extends PlanElement> calcRoute(String mode, RoutingModule routingModule, RoutingRequest request) {
+		Person person = request.getPerson();
+		Facility from = request.getFromFacility();
+		Facility to = request.getToFacility();
+		LegKey key = new LegKey(mode, person == null ? null : person.getId(), request.getDepartureTime(),
+				from.getLinkId(), from.getCoord(), to.getLinkId(), to.getCoord());
+		Optional<List<? extends PlanElement>> route;
+		try {
+			route = legs.get(key, () -> Optional.ofNullable(routingModule.calcRoute(request)));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		return route.map(SharedAccessEgressLegs::copy).orElse(null);
+	}
+
+	/**
+	 * The raptor sets times and routes on the access/egress legs it uses, so every caller needs its own copy.
+	 */
+	private static List<PlanElement> copy(List<? extends PlanElement> planElements) {
+		List<PlanElement> copy = new ArrayList<>(planElements.size());
+		for (PlanElement planElement : planElements) {
+			if (planElement instanceof Leg leg) {
+				Leg legCopy = PopulationUtils.createLeg(leg.getMode());
+				PopulationUtils.copyFromTo(leg, legCopy);
+				copy.add(legCopy);
+			} else if (planElement instanceof Activity activity) {
+				copy.add(PopulationUtils.createActivity(activity));
+			} else {
+				throw new IllegalStateException("unexpected plan element " + planElement);
+			}
+		}
+		return copy;
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		// travel times of network modes may have changed
+		if (legs.size() > 0) {
+			log.info("discarding " + legs.size() + " shared access/egress legs, " + legs.stats());
+		}
+		legs.invalidateAll();
+	}
+}
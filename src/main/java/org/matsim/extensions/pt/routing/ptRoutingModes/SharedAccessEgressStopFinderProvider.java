@@ -0,0 +1,52 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.routing.ptRoutingModes;
+
+import ch.sbb.matsim.routing.pt.raptor.DefaultRaptorStopFinder;
+import ch.sbb.matsim.routing.pt.raptor.RaptorIntermodalAccessEgress;
+import ch.sbb.matsim.routing.pt.raptor.RaptorStopFinder;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import org.matsim.core.router.RoutingModule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Provides the {@link DefaultRaptorStopFinder} with the access/egress routing modules of the shared modes replaced by
+ * {@link SharedAccessEgressLegs}, so the candidate stops of these modes are computed once per trip for all routing
+ * modes.
+ *
+ * @author vsp-gleich
+ */
+class SharedAccessEgressStopFinderProvider implements Provider<RaptorStopFinder> {
+
+	@Inject private RaptorIntermodalAccessEgress intermodalAccessEgress;
+	@Inject private Map<String, Provider<RoutingModule>> routingModuleProviders;
+	@Inject private SharedAccessEgressLegs sharedAccessEgressLegs;
+
+	@Override
+	public RaptorStopFinder get() {
+		Map<String, jakarta.inject.Provider<RoutingModule>> accessEgressRoutingModuleProviders = new HashMap<>();
+		routingModuleProviders.forEach((mode, provider) -> accessEgressRoutingModuleProviders.put(mode,
+				sharedAccessEgressLegs.isShared(mode) ? () -> sharedAccessEgressLegs.wrap(mode, provider.get()) : provider));
+		return new DefaultRaptorStopFinder(intermodalAccessEgress, accessEgressRoutingModuleProviders);
+	}
+}
@@ -0,0 +1,157 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.utils;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Transit modes derived from gtfs route types (routes.txt route_type), both the basic enum in the range 0 to 12 and
+ * the extended route types in the range 100 to 1799.
+ * See https://developers.google.com/transit/gtfs/reference/#routestxt
+ * and https://developers.google.com/transit/gtfs/reference/extended-route-types
+ * <p>
+ * The route type to mode mapping is precomputed once into a lookup table. Stops carry the modes serving them as a
+ * bitmask of {@link #bit()}s, see {@link TransitStopTagger#tagLineAndModeServingStop}.
+ *
+ * @author vsp-gleich
+ */
+public enum GtfsTransitMode {
+	TRAM("Tram, Light Rail, Streetcar"),
+	SUBWAY_METRO("Subway, Metro"),
+	RAIL("Rail"),
+	S_BAHN("S-Bahn"),
+	COACH("Coach"),
+	BUS("Bus"),
+	TROLLEYBUS("Trolleybus"),
+	MONORAIL("Monorail"),
+	FERRY("Ferry"),
+	AIR("Air"),
+	CABLE_CAR("Cable Car"),
+	GONDOLA("Gondola, Suspended cable car"),
+	FUNICULAR("Funicular"),
+	TAXI("Taxi"),
+	MISCELLANEOUS("Miscellaneous"),
+	UNKNOWN("unknown");
+
+	private static final int MAX_ROUTE_TYPE = 1799;
+	private static final GtfsTransitMode[] ROUTE_TYPE_TO_MODE = new GtfsTransitMode[MAX_ROUTE_TYPE + 1];
+	private static final GtfsTransitMode[] VALUES = values();
+
+	static {
+		// basic gtfs route types.
+		// The vbb gtfs file generally uses the extended route types, but some lines use the old enum in the range 0 to 7
+		put(0, TRAM);
+		put(1, SUBWAY_METRO);
+		put(2, RAIL);
+		put(3, BUS);
+		put(4, FERRY);
+		put(5, CABLE_CAR);
+		put(6, GONDOLA);
+		put(7, FUNICULAR);
+		put(11, TROLLEYBUS);
+		put(12, MONORAIL);
+
+		// extended route types, see the Hierarchical Vehicle Type (HVT) list. Each block of one hundred route types is
+		// mapped as a whole first, so subtypes not listed explicitly fall back to the mode of their block.
+		putRange(100, 199, RAIL);
+		put(109, S_BAHN); // VBB gtfs: Suburban Railway
+		putRange(200, 299, COACH);
+		putRange(300, 399, S_BAHN); // Suburban Railway
+		// 405 would be Monorail according to the extended route types, but has always been tagged as subway here
+		putRange(400, 499, SUBWAY_METRO); // Urban Railway
+		putRange(500, 599, SUBWAY_METRO); // Metro
+		putRange(600, 699, SUBWAY_METRO); // Underground
+		// In GTFS-VBB-20181214.zip some RE lines are wrongly attributed as type 700 (bus)!
+		putRange(700, 799, BUS);
+		putRange(800, 899, TROLLEYBUS);
+		putRange(900, 999, TRAM);
+		putRange(1000, 1099, FERRY); // Water Transport Service
+		putRange(1100, 1199, AIR);
+		putRange(1200, 1299, FERRY);
+		putRange(1300, 1399, GONDOLA); // Aerial Lift Service
+		putRange(1400, 1499, FUNICULAR);
+		putRange(1500, 1599, TAXI);
+		putRange(1600, 1699, MISCELLANEOUS); // Self Drive
+		putRange(1700, 1799, MISCELLANEOUS);
+		put(1701, CABLE_CAR);
+	}
+
+	private final String label;
+
+	GtfsTransitMode(String label) {
+		this.label = label;
+	}
+
+	private static void put(int routeType, GtfsTransitMode mode) {
+		ROUTE_TYPE_TO_MODE[routeType] = mode;
+	}
+
+	private static void putRange(int fromRouteType, int toRouteTypeInclusive, GtfsTransitMode mode) {
+		for (int routeType = fromRouteType; routeType <= toRouteTypeInclusive; routeType++) {
+			ROUTE_TYPE_TO_MODE[routeType] = mode;
+		}
+	}
+
+	/**
+	 * @return the mode for the given gtfs route type or {@link #UNKNOWN} if the route type is not defined
+	 */
+	public static GtfsTransitMode fromRouteType(int routeType) {
+		if (routeType < 0 || routeType > MAX_ROUTE_TYPE) {
+			return UNKNOWN;
+		}
+		GtfsTransitMode mode = ROUTE_TYPE_TO_MODE[routeType];
+		return mode == null ? UNKNOWN : mode;
+	}
+
+	/**
+	 * @return the mode with the given human-readable label, e.g. "Subway, Metro", or null if there is none
+	 */
+	public static GtfsTransitMode fromLabel(String label) {
+		for (GtfsTransitMode mode : VALUES) {
+			if (mode.label.equals(label)) {
+				return mode;
+			}
+		}
+		return null;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public int bit() {
+		return 1 << ordinal();
+	}
+
+	public boolean isContainedIn(int modeMask) {
+		return (modeMask & bit()) != 0;
+	}
+
+	public static Set<GtfsTransitMode> fromMask(int modeMask) {
+		Set<GtfsTransitMode> modes = EnumSet.noneOf(GtfsTransitMode.class);
+		for (GtfsTransitMode mode : VALUES) {
+			if (mode.isContainedIn(modeMask)) {
+				modes.add(mode);
+			}
+		}
+		return modes;
+	}
+}
@@ -21,6 +21,9 @@
 package org.matsim.extensions.pt.utils;
 
 import com.google.common.base.Verify;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.locationtech.jts.geom.Geometry;
@@ -36,6 +39,7 @@ import java.util.*;
 
 /**
  * Tool for tagging TransitStopFacilities e.g. by gtfs mode, line ids serving the stop, location in a shape file etc.
+ * For schedules too large to be loaded into memory see {@link TransitStopTaggerCli}.
  *
  * @author vsp-gleich
  */
@@ -43,6 +47,13 @@ public class TransitStopTagger {
 
     private static final Logger log = LogManager.getLogger(TransitStopTagger.class);
 
+    public static final String GTFS_TRANSIT_MODE_MASK = "gtfsTransitModeMask";
+    /**
+     * tags written by {@link #tagLineAndModeServingStop(TransitSchedule)}
+     */
+    public static final Set<String> SERVICE_TAGS = Set.of(GTFS_TRANSIT_MODE_MASK, "gtfsAgencyIds", "matsimTransitModes",
+            "transitLines", "transitLinesString", "transitLines2Deps");
+
     public static void attributeTransitStopFacilitiesFromTransitScheduleFile(URL fileWithAttributes, TransitSchedule scheduleToBeAttributed) {
         if (fileWithAttributes == null) {
             log.info("No file to copy stop filter attributes from. If stop filter attributes were set for the intermodal pt router, no stops will be found.");
@@ -93,117 +104,203 @@ public class TransitStopTagger {
     }
 
     /**
-     * TODO: add more gtfs modes, rethink
+     * Tags each stop with the lines, gtfs modes, gtfs agencies and departures serving it. The gtfs modes are stored as a
+     * bitmask of {@link GtfsTransitMode#bit()}s in the attribute {@value #GTFS_TRANSIT_MODE_MASK}. Unknown gtfs route
+     * types are tagged as {@link GtfsTransitMode#UNKNOWN} and counted.
      */
     public static void tagLineAndModeServingStop(TransitSchedule transitSchedule) {
-        for (TransitLine line : transitSchedule.getTransitLines().values()) {
-            String gtfsTransitMode = "unknown";
+        tagLinesServingStops(transitSchedule.getTransitLines().values(), null);
+    }
 
-            // identify veh type / mode using gtfs route type (3-digit code, also found at the end of the line id (gtfs: route_id))
-            int gtfsTransitType;
-            try {
-                gtfsTransitType = Integer.parseInt((String) line.getAttributes().getAttribute("gtfs_route_type"));
-                switch (gtfsTransitType) {
-                    // the vbb gtfs file generally uses the new gtfs route types, but some lines use the old enum in the range 0 to 7
-                    // see https://sites.google.com/site/gtfschanges/proposals/route-type
-                    // and https://developers.google.com/transit/gtfs/reference/#routestxt
-                    // In GTFS-VBB-20181214.zip some RE lines are wrongly attributed as type 700 (bus)!
-
-                    case 0, 900, 901, 902, 903, 904, 905, 906 -> gtfsTransitMode = "Tram, Light Rail, Streetcar";
-                    case 1, 400, 401, 402, 403, 404, 405 -> gtfsTransitMode = "Subway, Metro";
-                    case 2, 100, 101, 102, 103, 104, 105, 106, 107, 108 -> gtfsTransitMode = "Rail";
-                    case 3, 700, 701, 702, 703, 704 -> gtfsTransitMode = "Bus";
-                    case 4, 1000, 1200 -> gtfsTransitMode = "Ferry";
-                    case 5, 1701 -> gtfsTransitMode = "Cable Car";
-                    case 6, 1300 -> gtfsTransitMode = "Gondola, Suspended cable car";
-                    case 7, 1400 -> gtfsTransitMode = "Funicular";
-                    case 11 -> gtfsTransitMode = "Trolleybus";
-                    case 12 -> gtfsTransitMode = "Monorail";
-                    case 109 -> // VBB gtfs
-                            gtfsTransitMode = "S-Bahn";
-                        default -> {
-                        log.error("unknown gtfs mode type! Line id was " + line.getId().toString() +
-                                "; gtfs route type was " + line.getAttributes().getAttribute("gtfs_route_type"));
-                        throw new RuntimeException("unknown transit mode");
-                    }
+    /**
+     * Updates the tags set by {@link #tagLineAndModeServingStop(TransitSchedule)} after the schedule was edited, without
+     * re-tagging all stops. Only stops served by one of the changed lines before or after the edit are re-tagged.
+     * <p>
+     * Tags derived from the service tags (e.g. by {@link #tagStopsServedByGtfsMode}) are not known here. To keep them
+     * consistent, remove them from the returned stops using {@link #deleteTransitStopFacilityTags} and re-apply the
+     * tagging rules to the returned stops only.
+     *
+     * @param changedLineIds ids of all lines which were added, removed or modified (including modified routes)
+     * @return the stops whose service tags were updated
+     */
+    public static Set<TransitStopFacility> updateLineAndModeServingStop(TransitSchedule transitSchedule, Set<Id<TransitLine>> changedLineIds) {
+        Map<Id<TransitStopFacility>, TransitStopFacility> affectedStops = new LinkedHashMap<>();
+
+        // stops served by a changed line before the edit
+        for (TransitStopFacility stop : transitSchedule.getFacilities().values()) {
+            Set<Id<TransitLine>> lineIds = getTransitLines(stop);
+            if (lineIds != null && lineIds.stream().anyMatch(changedLineIds::contains)) {
+                affectedStops.put(stop.getId(), stop);
+            }
+        }
+        // stops served by a changed line after the edit
+        for (Id<TransitLine> lineId : changedLineIds) {
+            TransitLine line = transitSchedule.getTransitLines().get(lineId);
+            if (line != null) {
+                for (TransitRoute route : line.getRoutes().values()) {
+                    route.getStops().forEach(routeStop -> affectedStops.put(routeStop.getStopFacility().getId(), routeStop.getStopFacility()));
                 }
-            } catch (NumberFormatException e) {
-                log.error("unknown gtfs transit mode or gtfs_route_type not given! Line id was " + line.getId().toString() +
-                        "; gtfs route type was " + line.getAttributes().getAttribute("gtfs_route_type"));
             }
+        }
+
+        // the tags are aggregated over all lines serving a stop, so re-tag the affected stops with all their lines
+        Set<TransitLine> linesToReplay = new LinkedHashSet<>();
+        for (TransitStopFacility stop : affectedStops.values()) {
+            Set<Id<TransitLine>> lineIds = getTransitLines(stop);
+            if (lineIds != null) {
+                lineIds.stream().
+                        map(lineId -> transitSchedule.getTransitLines().get(lineId)).
+                        filter(Objects::nonNull).
+                        forEach(linesToReplay::add);
+            }
+            SERVICE_TAGS.forEach(stop.getAttributes()::removeAttribute);
+        }
+        changedLineIds.stream().
+                map(lineId -> transitSchedule.getTransitLines().get(lineId)).
+                filter(Objects::nonNull).
+                forEach(linesToReplay::add);
+
+        tagLinesServingStops(linesToReplay, affectedStops.keySet());
+        log.info("updated service tags of " + affectedStops.size() + " stops after changes to " + changedLineIds.size() + " lines.");
+        return new LinkedHashSet<>(affectedStops.values());
+    }
 
-            int agencyId = Integer.MIN_VALUE;
-            try {
-                agencyId = Integer.parseInt((String) line.getAttributes().getAttribute("gtfs_agency_id"));
-            } catch (NumberFormatException e) {
+    /**
+     * @param stopsToTag only these stops are tagged, all stops served by the lines if null
+     */
+    private static void tagLinesServingStops(Collection<TransitLine> lines, Set<Id<TransitStopFacility>> stopsToTag) {
+        // route types and agency ids are String attributes repeated on many lines, so parse each distinct value only once
+        Map<Object, GtfsTransitMode> routeTypeAttr2Mode = new HashMap<>();
+        Map<Object, Integer> agencyIdAttr2AgencyId = new HashMap<>();
+        Map<String, Integer> unknownRouteType2Count = new TreeMap<>();
+
+        for (TransitLine line : lines) {
+            // identify veh type / mode using gtfs route type (3-digit code, also found at the end of the line id (gtfs: route_id))
+            Object routeTypeAttr = line.getAttributes().getAttribute("gtfs_route_type");
+            GtfsTransitMode gtfsTransitMode = routeTypeAttr2Mode.computeIfAbsent(routeTypeAttr, TransitStopTagger::parseGtfsRouteType);
+            if (gtfsTransitMode == GtfsTransitMode.UNKNOWN) {
+                unknownRouteType2Count.merge(String.valueOf(routeTypeAttr), 1, Integer::sum);
+            }
+
+            Object agencyIdAttr = line.getAttributes().getAttribute("gtfs_agency_id");
+            int agencyId = agencyIdAttr2AgencyId.computeIfAbsent(agencyIdAttr, TransitStopTagger::parseGtfsAgencyId);
+            if (agencyId == Integer.MIN_VALUE) {
                 log.error("invalid transit agency! Line id was " + line.getId().toString() +
-                        "; gtfs agency was " + line.getAttributes().getAttribute("gtfs_agency_id"));
+                        "; gtfs agency was " + agencyIdAttr);
             }
 
             for (TransitRoute route : line.getRoutes().values()) {
                 for (TransitRouteStop routeStop : route.getStops()) {
-                    Object attrGtfsTransitModes = routeStop.getStopFacility().getAttributes().getAttribute("gtfsTransitModes");
-                    Set<String> gtfsTransitModes = attrGtfsTransitModes == null ? new HashSet<>() : (attrGtfsTransitModes instanceof Set ? (Set<String>) attrGtfsTransitModes : new HashSet<>());
-                    gtfsTransitModes.add(gtfsTransitMode);
-                    routeStop.getStopFacility().getAttributes().putAttribute("gtfsTransitModes", gtfsTransitModes);
-
-                    Object attrGtfsAgencyIds = routeStop.getStopFacility().getAttributes().getAttribute("gtfsAgencyIds");
-                    Set<Integer> gtfsAgencyIds = attrGtfsAgencyIds == null ? new HashSet<>() : (attrGtfsAgencyIds instanceof Set ? (Set<Integer>) attrGtfsAgencyIds : new HashSet<>());
-                    gtfsAgencyIds.add(agencyId);
-                    routeStop.getStopFacility().getAttributes().putAttribute("gtfsAgencyIds", gtfsAgencyIds);
-
-                    Object attrMatsimTransitModes = routeStop.getStopFacility().getAttributes().getAttribute("matsimTransportModes");
-                    Set<String> matsimTransitModes = attrMatsimTransitModes == null ? new HashSet<>() : (attrMatsimTransitModes instanceof Set ? (Set<String>) attrMatsimTransitModes : new HashSet<>());
-                    matsimTransitModes.add(route.getTransportMode());
-                    routeStop.getStopFacility().getAttributes().putAttribute("matsimTransitModes", gtfsTransitModes);
-
-                    Object attrLines = routeStop.getStopFacility().getAttributes().getAttribute("transitLines");
-                    Set<Id<TransitLine>> lineIds = attrLines == null ? new HashSet<>() : (attrLines instanceof Set ? (Set<Id<TransitLine>>) attrLines : new HashSet<>());
-                    lineIds.add(line.getId());
-                    routeStop.getStopFacility().getAttributes().putAttribute("transitLines", lineIds);
-
-                    Object attrLinesString = routeStop.getStopFacility().getAttributes().getAttribute("transitLinesString");
-                    String lineIdsString = attrLinesString == null ? "" : (attrLinesString instanceof String ? (String) attrLinesString : "");
-                    lineIdsString = lineIdsString.length() == 0 ? line.getId().toString() : ( lineIdsString.contains(line.getId().toString()) ? lineIdsString : lineIdsString + "," + line.getId().toString());
-                    routeStop.getStopFacility().getAttributes().putAttribute("transitLinesString", lineIdsString);
-
-                    Object attrLines2Deps = routeStop.getStopFacility().getAttributes().getAttribute("transitLines2Deps");
-                    Map<Id<TransitLine>, List<Double>> line2Deps = attrLines2Deps == null ? new HashMap<>() : (attrLines2Deps instanceof Map ? (Map<Id<TransitLine>, List<Double>>) attrLines2Deps : new HashMap<>());
-                    route.getDepartures().values().forEach(dep -> line2Deps.computeIfAbsent(line.getId(), k -> new ArrayList<Double>()).add(dep.getDepartureTime() + (routeStop.getDepartureOffset().isDefined() ? routeStop.getDepartureOffset().seconds() : routeStop.getArrivalOffset().seconds())));
-                    routeStop.getStopFacility().getAttributes().putAttribute("transitLines2Deps", line2Deps);
+                    if (stopsToTag == null || stopsToTag.contains(routeStop.getStopFacility().getId())) {
+                        tagRouteStop(line, route, routeStop, gtfsTransitMode, agencyId);
+                    }
                 }
             }
         }
+
+        if (!unknownRouteType2Count.isEmpty()) {
+            log.warn("unknown gtfs transit mode or gtfs_route_type not given! Number of lines tagged as "
+                    + GtfsTransitMode.UNKNOWN.getLabel() + " per gtfs route type: " + unknownRouteType2Count);
+        }
+    }
+
+    private static void tagRouteStop(TransitLine line, TransitRoute route, TransitRouteStop routeStop, GtfsTransitMode gtfsTransitMode, int agencyId) {
+        Object attrGtfsTransitModeMask = routeStop.getStopFacility().getAttributes().getAttribute(GTFS_TRANSIT_MODE_MASK);
+        int gtfsTransitModeMask = attrGtfsTransitModeMask instanceof Integer ? (Integer) attrGtfsTransitModeMask : 0;
+        routeStop.getStopFacility().getAttributes().putAttribute(GTFS_TRANSIT_MODE_MASK, gtfsTransitModeMask | gtfsTransitMode.bit());
+
+        Object attrGtfsAgencyIds = routeStop.getStopFacility().getAttributes().getAttribute("gtfsAgencyIds");
+        Set<Integer> gtfsAgencyIds = attrGtfsAgencyIds == null ? new HashSet<>() : (attrGtfsAgencyIds instanceof Set ? (Set<Integer>) attrGtfsAgencyIds : new HashSet<>());
+        gtfsAgencyIds.add(agencyId);
+        routeStop.getStopFacility().getAttributes().putAttribute("gtfsAgencyIds", gtfsAgencyIds);
+
+        Object attrMatsimTransitModes = routeStop.getStopFacility().getAttributes().getAttribute("matsimTransitModes");
+        Set<String> matsimTransitModes = attrMatsimTransitModes == null ? new HashSet<>() : (attrMatsimTransitModes instanceof Set ? (Set<String>) attrMatsimTransitModes : new HashSet<>());
+        matsimTransitModes.add(route.getTransportMode());
+        routeStop.getStopFacility().getAttributes().putAttribute("matsimTransitModes", matsimTransitModes);
+
+        Object attrLines = routeStop.getStopFacility().getAttributes().getAttribute("transitLines");
+        Set<Id<TransitLine>> lineIds = attrLines == null ? new HashSet<>() : (attrLines instanceof Set ? (Set<Id<TransitLine>>) attrLines : new HashSet<>());
+        lineIds.add(line.getId());
+        routeStop.getStopFacility().getAttributes().putAttribute("transitLines", lineIds);
+
+        Object attrLinesString = routeStop.getStopFacility().getAttributes().getAttribute("transitLinesString");
+        String lineIdsString = attrLinesString == null ? "" : (attrLinesString instanceof String ? (String) attrLinesString : "");
+        lineIdsString = lineIdsString.length() == 0 ? line.getId().toString() : ( lineIdsString.contains(line.getId().toString()) ? lineIdsString : lineIdsString + "," + line.getId().toString());
+        routeStop.getStopFacility().getAttributes().putAttribute("transitLinesString", lineIdsString);
+
+        Object attrLines2Deps = routeStop.getStopFacility().getAttributes().getAttribute("transitLines2Deps");
+        Map<Id<TransitLine>, List<Double>> line2Deps = attrLines2Deps == null ? new HashMap<>() : (attrLines2Deps instanceof Map ? (Map<Id<TransitLine>, List<Double>>) attrLines2Deps : new HashMap<>());
+        route.getDepartures().values().forEach(dep -> line2Deps.computeIfAbsent(line.getId(), k -> new ArrayList<Double>()).add(dep.getDepartureTime() + (routeStop.getDepartureOffset().isDefined() ? routeStop.getDepartureOffset().seconds() : routeStop.getArrivalOffset().seconds())));
+        routeStop.getStopFacility().getAttributes().putAttribute("transitLines2Deps", line2Deps);
+    }
+
+    private static Set<Id<TransitLine>> getTransitLines(TransitStopFacility stop) {
+        Object attr = stop.getAttributes().getAttribute("transitLines");
+        return attr instanceof Set ? (Set<Id<TransitLine>>) attr : null;
+    }
+
+    private static GtfsTransitMode parseGtfsRouteType(Object routeTypeAttr) {
+        // the vbb gtfs file generally uses the new gtfs route types, but some lines use the old enum in the range 0 to 7
+        // see https://sites.google.com/site/gtfschanges/proposals/route-type
+        // and https://developers.google.com/transit/gtfs/reference/#routestxt
+        try {
+            return GtfsTransitMode.fromRouteType(Integer.parseInt(String.valueOf(routeTypeAttr).trim()));
+        } catch (NumberFormatException e) {
+            return GtfsTransitMode.UNKNOWN;
+        }
+    }
+
+    private static int parseGtfsAgencyId(Object agencyIdAttr) {
+        try {
+            return Integer.parseInt(String.valueOf(agencyIdAttr).trim());
+        } catch (NumberFormatException e) {
+            return Integer.MIN_VALUE;
+        }
     }
 
     public static void tagStopsServedByLineNameStartingWith(TransitSchedule transitSchedule, String lineNamePrefix, String attributeName, String attributeValue) {
-        transitSchedule.getFacilities().values().stream().
+        tagStopsServedByLineNameStartingWith(transitSchedule.getFacilities().values(), lineNamePrefix, attributeName, attributeValue);
+    }
+
+    public static void tagStopsServedByLineNameStartingWith(Collection<TransitStopFacility> stops, String lineNamePrefix, String attributeName, String attributeValue) {
+        stops.stream().
                 filter(stop -> {
-                    Object attr = stop.getAttributes().getAttribute("transitLines");
-                    Set<Id<TransitLine>> lineIds = attr == null ? null : (attr instanceof Set ? (Set<Id<TransitLine>>) attr : null);
+                    Set<Id<TransitLine>> lineIds = getTransitLines(stop);
                     return lineIds != null && lineIds.stream().anyMatch(lineId -> lineId.toString().startsWith(lineNamePrefix));
                 }).
                 forEach(stop -> stop.getAttributes().putAttribute(attributeName, attributeValue));
     }
 
     public static void tagStopsServedByMinDeparturesXLineNameStartingWith(TransitSchedule transitSchedule, int minDepartures, String lineNamePrefix, String attributeName, String attributeValue) {
-        tagStopsServedWithLinesHavingMinXDepartures(transitSchedule, minDepartures, "transitLinesMin" + minDepartures + "Departures");
+        tagStopsServedByMinDeparturesXLineNameStartingWith(transitSchedule.getFacilities().values(), minDepartures, lineNamePrefix, attributeName, attributeValue);
+    }
+
+    public static void tagStopsServedByMinDeparturesXLineNameStartingWith(Collection<TransitStopFacility> stops, int minDepartures, String lineNamePrefix, String attributeName, String attributeValue) {
+        tagStopsServedWithLinesHavingMinXDepartures(stops, minDepartures, "transitLinesMin" + minDepartures + "Departures");
 
-        transitSchedule.getFacilities().values().stream().
+        stops.stream().
                 filter(stop -> {
                     Object attr = stop.getAttributes().getAttribute("transitLinesMin" + minDepartures + "Departures");
-                    String lineIds = attr == null ? "" : (attr instanceof Set ? (String) attr : "");
+                    String lineIds = attr == null ? "" : (attr instanceof String ? (String) attr : "");
                     return Arrays.stream(lineIds.split(",")).anyMatch(lineName -> lineName.startsWith(lineNamePrefix));
                 }).
                 forEach(stop -> stop.getAttributes().putAttribute(attributeName, attributeValue));
     }
 
     public static void tagStopsServedByGtfsMode(TransitSchedule transitSchedule, String gtfsMode, String attributeName, String attributeValue) {
-        transitSchedule.getFacilities().values().stream().
+        tagStopsServedByGtfsMode(transitSchedule.getFacilities().values(), gtfsMode, attributeName, attributeValue);
+    }
+
+    public static void tagStopsServedByGtfsMode(Collection<TransitStopFacility> stops, String gtfsMode, String attributeName, String attributeValue) {
+        GtfsTransitMode mode = GtfsTransitMode.fromLabel(gtfsMode);
+        if (mode == null) {
+            throw new IllegalArgumentException("unknown gtfs transit mode " + gtfsMode);
+        }
+        stops.stream().
                 filter(stop -> {
-                    Object attr = stop.getAttributes().getAttribute("gtfsTransitModes");
-                    Set<String> gtfsModes = attr == null ? null : (attr instanceof Set ? (Set<String>) attr : null);
-                    return gtfsModes != null && gtfsModes.stream().anyMatch(attrGtfsMode -> attrGtfsMode.equals(gtfsMode));
+                    Object attr = stop.getAttributes().getAttribute(GTFS_TRANSIT_MODE_MASK);
+                    return attr instanceof Integer && mode.isContainedIn((Integer) attr);
                 }).
                 forEach(stop -> stop.getAttributes().putAttribute(attributeName, attributeValue));
     }
@@ -211,26 +308,154 @@ public class TransitStopTagger {
     public static void deleteAllTransitStopFacilityTagsExcept(TransitSchedule transitSchedule, Set<String> attributeNamesToKeep) {
         transitSchedule.getFacilities().values().
                 forEach(stop -> {
-                    Set<String> attributeNames = stop.getAttributes().getAsMap().keySet();
+                    // copy the key set, we must not remove attributes while iterating over it
+                    List<String> attributeNames = new ArrayList<>(stop.getAttributes().getAsMap().keySet());
                     attributeNames.stream().
                             filter(attribute -> !attributeNamesToKeep.contains(attribute)).
                             forEach(attribute -> stop.getAttributes().removeAttribute(attribute));
                 });
     }
 
+    /**
+     * Compaction stage to be run after tagging and before the simulation: deletes all stop attributes except
+     * attributeNamesToKeep (e.g. the stop filter attributes used by the intermodal router) and makes stops with equal
+     * attribute values share one immutable instance of that value.
+     * <p>
+     * The kept values are immutable afterwards, so no tagging methods should be run on the schedule after compaction.
+     */
+    public static AttributeCompactionResult compactTransitStopFacilityAttributes(TransitSchedule transitSchedule, Set<String> attributeNamesToKeep) {
+        Map<Object, Object> canonicalValues = new HashMap<>();
+        int removedAttributes = 0;
+        int deduplicatedValues = 0;
+        long estimatedBytesSaved = 0;
+
+        for (TransitStopFacility stop : transitSchedule.getFacilities().values()) {
+            List<String> attributeNames = new ArrayList<>(stop.getAttributes().getAsMap().keySet());
+            for (String attributeName : attributeNames) {
+                if (!attributeNamesToKeep.contains(attributeName)) {
+                    estimatedBytesSaved += estimateBytes(stop.getAttributes().removeAttribute(attributeName));
+                    removedAttributes++;
+                    continue;
+                }
+                Object value = stop.getAttributes().getAttribute(attributeName);
+                Object canonicalValue = canonicalValues.get(value);
+                if (canonicalValue == null) {
+                    // first stop holding this value, keep an immutable copy as the canonical instance
+                    canonicalValue = toImmutable(value);
+                    canonicalValues.put(canonicalValue, canonicalValue);
+                } else if (canonicalValue != value) {
+                    // another stop already holds the same value, so this instance is garbage now
+                    estimatedBytesSaved += estimateBytes(value);
+                    deduplicatedValues++;
+                }
+                if (canonicalValue != value) {
+                    stop.getAttributes().putAttribute(attributeName, canonicalValue);
+                }
+            }
+        }
+
+        AttributeCompactionResult result = new AttributeCompactionResult(removedAttributes, deduplicatedValues, estimatedBytesSaved);
+        log.info("compacted TransitStopFacility attributes: " + result);
+        return result;
+    }
+
+    private static Object toImmutable(Object value) {
+        if (value instanceof Set) {
+            return ImmutableSet.copyOf((Set<?>) value);
+        } else if (value instanceof List) {
+            return ImmutableList.copyOf((List<?>) value);
+        } else if (value instanceof Map) {
+            Map<Object, Object> immutableMap = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> immutableMap.put(k, toImmutable(v)));
+            return ImmutableMap.copyOf(immutableMap);
+        }
+        return value;
+    }
+
+    /**
+     * Rough estimate of the retained heap of an attribute value on a 64 bit jvm with compressed oops. Ids are interned
+     * by MATSim, so only the reference to them is counted.
+     */
+    private static long estimateBytes(Object value) {
+        if (value == null || value instanceof Id) {
+            return 0;
+        } else if (value instanceof String) {
+            return 40 + ((String) value).length();
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return 16;
+        } else if (value instanceof Collection) {
+            long bytes = 64;
+            for (Object element : (Collection<?>) value) {
+                bytes += 32 + estimateBytes(element);
+            }
+            return bytes;
+        } else if (value instanceof Map) {
+            long bytes = 64;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += 32 + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+            }
+            return bytes;
+        }
+        return 16;
+    }
+
+    public static final class AttributeCompactionResult {
+        private final int removedAttributes;
+        private final int deduplicatedValues;
+        private final long estimatedBytesSaved;
+
+        AttributeCompactionResult(int removedAttributes, int deduplicatedValues, long estimatedBytesSaved) {
+            this.removedAttributes = removedAttributes;
+            this.deduplicatedValues = deduplicatedValues;
+            this.estimatedBytesSaved = estimatedBytesSaved;
+        }
+
+        public int getRemovedAttributes() {
+            return removedAttributes;
+        }
+
+        public int getDeduplicatedValues() {
+            return deduplicatedValues;
+        }
+
+        public long getEstimatedBytesSaved() {
+            return estimatedBytesSaved;
+        }
+
+        @Override
+        public String toString() {
+            return "removedAttributes=" + removedAttributes + ", deduplicatedValues=" + deduplicatedValues +
+                    ", estimatedBytesSaved=" + estimatedBytesSaved;
+        }
+    }
+
+    public static void deleteTransitStopFacilityTags(Collection<TransitStopFacility> stops, Set<String> attributeNamesToDelete) {
+        stops.forEach(stop -> attributeNamesToDelete.forEach(stop.getAttributes()::removeAttribute));
+    }
+
     public static void tagStopsServedWithLinesHavingMinXDepartures(TransitSchedule transitSchedule, int minDepartures, String attributeName) {
-        transitSchedule.getFacilities().values().stream().
-                forEach(stop -> {
+        tagStopsServedWithLinesHavingMinXDepartures(transitSchedule.getFacilities().values(), minDepartures, attributeName);
+    }
+
+    /**
+     * Overwrites attributeName with the comma separated ids of all lines serving the stop with more than minDepartures
+     * departures, so tagging the same stops again does not duplicate line ids.
+     */
+    public static void tagStopsServedWithLinesHavingMinXDepartures(Collection<TransitStopFacility> stops, int minDepartures, String attributeName) {
+        stops.forEach(stop -> {
                     Object attrLines2Deps = stop.getAttributes().getAttribute("transitLines2Deps");
                     Map<Id<TransitLine>, List<Double>> lines2deps = attrLines2Deps == null ? new HashMap<>() : (attrLines2Deps instanceof Map ? (Map<Id<TransitLine>, List<Double>>) attrLines2Deps : new HashMap<>());
+                    StringJoiner lineIdsString = new StringJoiner(",");
                     for (Map.Entry<Id<TransitLine>, List<Double>> line2deps: lines2deps.entrySet()) {
                         if (line2deps.getValue().size() > minDepartures) {
-                            Object attrLinesString = stop.getAttributes().getAttribute(attributeName);
-                            String lineIdsString = attrLinesString == null ? "" : (attrLinesString instanceof String ? (String) attrLinesString : "");
-                            lineIdsString = lineIdsString.length() == 0 ? line2deps.getKey().toString() : lineIdsString + "," + line2deps.getKey().toString();
-                            stop.getAttributes().putAttribute(attributeName, lineIdsString);
+                            lineIdsString.add(line2deps.getKey().toString());
                         }
                     }
+                    if (lineIdsString.length() > 0) {
+                        stop.getAttributes().putAttribute(attributeName, lineIdsString.toString());
+                    } else {
+                        stop.getAttributes().removeAttribute(attributeName);
+                    }
                 });
     }
 
@@ -0,0 +1,340 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.core.utils.io.IOUtils;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.*;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Command line tool tagging the TransitStopFacilities of a transit schedule file with a configured rule set, without
+ * loading the schedule into memory. Only light-weight service data per stop (lines, gtfs modes, departures per line)
+ * is kept, so also national schedules can be tagged on small machines.
+ * <p>
+ * The schedule file is streamed twice: the first pass collects the service data from the transit lines, the second
+ * pass copies the file and replaces the attributes of each stop facility. Transit lines, routes and all other elements
+ * are passed through unchanged, no MATSim objects are built for them.
+ * <p>
+ * Usage: {@code TransitStopTaggerCli <inputSchedule> <outputSchedule> <ruleFile>}
+ * <p>
+ * The rule file contains one rule per line, fields separated by ';', lines starting with '#' are ignored. The rules
+ * correspond to the methods of {@link TransitStopTagger} and are applied in the given order:
+ * <pre>
+ * lineNamePrefix;&lt;prefix&gt;;&lt;attributeName&gt;;&lt;attributeValue&gt;
+ * minDeparturesLineNamePrefix;&lt;minDepartures&gt;;&lt;prefix&gt;;&lt;attributeName&gt;;&lt;attributeValue&gt;
+ * gtfsMode;&lt;gtfs mode label, e.g. S-Bahn&gt;;&lt;attributeName&gt;;&lt;attributeValue&gt;
+ * linesWithMinDepartures;&lt;minDepartures&gt;;&lt;attributeName&gt;
+ * </pre>
+ * Additionally, the service tags {@value TransitStopTagger#GTFS_TRANSIT_MODE_MASK} and transitLinesString are written.
+ *
+ * @author vsp-gleich
+ */
+public final class TransitStopTaggerCli {
+
+	private static final Logger log = LogManager.getLogger(TransitStopTaggerCli.class);
+
+	private static final String STRING_CLASS = String.class.getName();
+	private static final String INTEGER_CLASS = Integer.class.getName();
+
+	private final List<StopTagRule> rules;
+	private final Map<String, StopServiceData> stopId2ServiceData = new HashMap<>();
+
+	TransitStopTaggerCli(List<StopTagRule> rules) {
+		this.rules = rules;
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 3) {
+			throw new IllegalArgumentException("Usage: TransitStopTaggerCli <inputSchedule> <outputSchedule> <ruleFile>");
+		}
+		List<StopTagRule> rules;
+		try {
+			rules = parseRules(Files.readAllLines(Path.of(args[2])));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		new TransitStopTaggerCli(rules).run(args[0], args[1]);
+	}
+
+	void run(String inputSchedule, String outputSchedule) {
+		log.info("collecting stop service data from " + inputSchedule);
+		try (InputStream in = IOUtils.getInputStream(IOUtils.resolveFileOrResource(inputSchedule))) {
+			collectStopServiceData(in);
+		} catch (IOException | XMLStreamException e) {
+			throw new RuntimeException("could not read transit schedule " + inputSchedule, e);
+		}
+		log.info("collected service data for " + stopId2ServiceData.size() + " stops.");
+
+		log.info("writing tagged transit schedule to " + outputSchedule);
+		try (InputStream in = IOUtils.getInputStream(IOUtils.resolveFileOrResource(inputSchedule));
+			 OutputStream out = IOUtils.getOutputStream(IOUtils.getFileUrl(outputSchedule), false)) {
+			copyWithTaggedStops(in, out);
+		} catch (IOException | XMLStreamException e) {
+			throw new RuntimeException("could not write transit schedule " + outputSchedule, e);
+		}
+	}
+
+	static List<StopTagRule> parseRules(List<String> ruleLines) {
+		List<StopTagRule> rules = new ArrayList<>();
+		for (String ruleLine : ruleLines) {
+			if (ruleLine.isBlank() || ruleLine.trim().startsWith("#")) {
+				continue;
+			}
+			String[] fields = ruleLine.trim().split(";");
+			switch (fields[0]) {
+				case "lineNamePrefix" -> {
+					checkNumberOfFields(fields, 4, ruleLine);
+					String prefix = fields[1];
+					rules.add(new StopTagRule(fields[2], data -> data.lineIds.stream().anyMatch(lineId -> lineId.startsWith(prefix)) ? fields[3] : null));
+				}
+				case "minDeparturesLineNamePrefix" -> {
+					checkNumberOfFields(fields, 5, ruleLine);
+					int minDepartures = Integer.parseInt(fields[1]);
+					String prefix = fields[2];
+					rules.add(new StopTagRule(fields[3], data -> data.getLinesWithMoreDeparturesThan(minDepartures).stream().
+							anyMatch(lineId -> lineId.startsWith(prefix)) ? fields[4] : null));
+				}
+				case "gtfsMode" -> {
+					checkNumberOfFields(fields, 4, ruleLine);
+					GtfsTransitMode mode = GtfsTransitMode.fromLabel(fields[1]);
+					if (mode == null) {
+						throw new IllegalArgumentException("unknown gtfs transit mode " + fields[1] + " in rule " + ruleLine);
+					}
+					rules.add(new StopTagRule(fields[2], data -> mode.isContainedIn(data.gtfsTransitModeMask) ? fields[3] : null));
+				}
+				case "linesWithMinDepartures" -> {
+					checkNumberOfFields(fields, 3, ruleLine);
+					int minDepartures = Integer.parseInt(fields[1]);
+					rules.add(new StopTagRule(fields[2], data -> {
+						List<String> lineIds = data.getLinesWithMoreDeparturesThan(minDepartures);
+						return lineIds.isEmpty() ? null : String.join(",", lineIds);
+					}));
+				}
+				default -> throw new IllegalArgumentException("unknown stop tag rule " + ruleLine);
+			}
+		}
+		return rules;
+	}
+
+	private static void checkNumberOfFields(String[] fields, int expected, String ruleLine) {
+		if (fields.length != expected) {
+			throw new IllegalArgumentException("rule " + ruleLine + " should have " + expected + " fields separated by ';'");
+		}
+	}
+
+	/**
+	 * First pass: collect lines, gtfs modes and number of departures per line serving each stop.
+	 */
+	void collectStopServiceData(InputStream in) throws XMLStreamException {
+		XMLStreamReader reader = createInputFactory().createXMLStreamReader(in);
+		String lineId = null;
+		GtfsTransitMode lineMode = GtfsTransitMode.UNKNOWN;
+		boolean inTransitRoute = false;
+		List<String> routeStopIds = new ArrayList<>();
+		int routeDepartures = 0;
+
+		while (reader.hasNext()) {
+			int eventType = reader.next();
+			if (eventType == XMLStreamConstants.START_ELEMENT) {
+				switch (reader.getLocalName()) {
+					case "transitLine" -> {
+						lineId = reader.getAttributeValue(null, "id");
+						lineMode = GtfsTransitMode.UNKNOWN;
+					}
+					case "attribute" -> {
+						if (lineId != null && !inTransitRoute && "gtfs_route_type".equals(reader.getAttributeValue(null, "name"))) {
+							try {
+								lineMode = GtfsTransitMode.fromRouteType(Integer.parseInt(reader.getElementText().trim()));
+							} catch (NumberFormatException e) {
+								lineMode = GtfsTransitMode.UNKNOWN;
+							}
+						}
+					}
+					case "transitRoute" -> {
+						inTransitRoute = true;
+						routeStopIds.clear();
+						routeDepartures = 0;
+					}
+					case "stop" -> {
+						if (inTransitRoute) {
+							routeStopIds.add(reader.getAttributeValue(null, "refId"));
+						}
+					}
+					case "departure" -> routeDepartures++;
+					default -> {
+					}
+				}
+			} else if (eventType == XMLStreamConstants.END_ELEMENT) {
+				switch (reader.getLocalName()) {
+					case "transitRoute" -> {
+						for (String stopId : routeStopIds) {
+							StopServiceData data = stopId2ServiceData.computeIfAbsent(stopId, k -> new StopServiceData());
+							data.lineIds.add(lineId);
+							data.gtfsTransitModeMask |= lineMode.bit();
+							data.line2Departures.merge(lineId, routeDepartures, Integer::sum);
+						}
+						inTransitRoute = false;
+					}
+					case "transitLine" -> lineId = null;
+					default -> {
+					}
+				}
+			}
+		}
+		reader.close();
+	}
+
+	/**
+	 * Second pass: copy all events, but replace the attributes of each stop facility by the merged old and new ones.
+	 */
+	void copyWithTaggedStops(InputStream in, OutputStream out) throws XMLStreamException {
+		XMLEventReader reader = createInputFactory().createXMLEventReader(in);
+		XMLEventWriter writer = XMLOutputFactory.newInstance().createXMLEventWriter(out, "UTF-8");
+		XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
+		String stopId = null;
+		Map<String, String[]> stopAttributes = null;
+		int taggedStops = 0;
+
+		while (reader.hasNext()) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement()) {
+				StartElement startElement = event.asStartElement();
+				String name = startElement.getName().getLocalPart();
+				if ("stopFacility".equals(name)) {
+					stopId = startElement.getAttributeByName(new QName("id")).getValue();
+					stopAttributes = new LinkedHashMap<>();
+				} else if (stopId != null && "attributes".equals(name)) {
+					readAttributes(reader, stopAttributes);
+					continue;
+				}
+			} else if (event.isEndElement() && stopId != null && "stopFacility".equals(event.asEndElement().getName().getLocalPart())) {
+				if (tagStop(stopId, stopAttributes)) {
+					taggedStops++;
+				}
+				writeAttributes(writer, eventFactory, stopAttributes);
+				stopId = null;
+				stopAttributes = null;
+			}
+			writer.add(event);
+		}
+		writer.flush();
+		writer.close();
+		reader.close();
+		log.info("tagged " + taggedStops + " stops.");
+	}
+
+	/**
+	 * @return whether the stop is served by any line
+	 */
+	private boolean tagStop(String stopId, Map<String, String[]> stopAttributes) {
+		StopServiceData data = stopId2ServiceData.get(stopId);
+		if (data == null) {
+			return false;
+		}
+		stopAttributes.put(TransitStopTagger.GTFS_TRANSIT_MODE_MASK, new String[]{INTEGER_CLASS, Integer.toString(data.gtfsTransitModeMask)});
+		stopAttributes.put("transitLinesString", new String[]{STRING_CLASS, String.join(",", data.lineIds)});
+		for (StopTagRule rule : rules) {
+			String value = rule.valueFunction().apply(data);
+			if (value != null) {
+				stopAttributes.put(rule.attributeName(), new String[]{STRING_CLASS, value});
+			}
+		}
+		return true;
+	}
+
+	private static void readAttributes(XMLEventReader reader, Map<String, String[]> stopAttributes) throws XMLStreamException {
+		while (reader.hasNext()) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement() && "attribute".equals(event.asStartElement().getName().getLocalPart())) {
+				StartElement attribute = event.asStartElement();
+				String name = attribute.getAttributeByName(new QName("name")).getValue();
+				Attribute classAttribute = attribute.getAttributeByName(new QName("class"));
+				String value = reader.getElementText();
+				stopAttributes.put(name, new String[]{classAttribute == null ? STRING_CLASS : classAttribute.getValue(), value});
+			} else if (event.isEndElement() && "attributes".equals(event.asEndElement().getName().getLocalPart())) {
+				return;
+			}
+		}
+	}
+
+	private static void writeAttributes(XMLEventWriter writer, XMLEventFactory eventFactory, Map<String, String[]> stopAttributes) throws XMLStreamException {
+		if (stopAttributes.isEmpty()) {
+			return;
+		}
+		writer.add(eventFactory.createCharacters("\n\t\t\t"));
+		writer.add(eventFactory.createStartElement("", "", "attributes"));
+		for (Map.Entry<String, String[]> attribute : stopAttributes.entrySet()) {
+			writer.add(eventFactory.createCharacters("\n\t\t\t\t"));
+			writer.add(eventFactory.createStartElement("", "", "attribute"));
+			writer.add(eventFactory.createAttribute("name", attribute.getKey()));
+			writer.add(eventFactory.createAttribute("class", attribute.getValue()[0]));
+			writer.add(eventFactory.createCharacters(attribute.getValue()[1]));
+			writer.add(eventFactory.createEndElement("", "", "attribute"));
+		}
+		writer.add(eventFactory.createCharacters("\n\t\t\t"));
+		writer.add(eventFactory.createEndElement("", "", "attributes"));
+		writer.add(eventFactory.createCharacters("\n\t\t"));
+	}
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+		// do not fetch the dtd referenced by the schedule file, the DOCTYPE is still passed through
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return inputFactory;
+	}
+
+	static final class StopServiceData {
+		final Set<String> lineIds = new LinkedHashSet<>();
+		final Map<String, Integer> line2Departures = new LinkedHashMap<>();
+		int gtfsTransitModeMask = 0;
+
+		List<String> getLinesWithMoreDeparturesThan(int minDepartures) {
+			List<String> lineIds = new ArrayList<>();
+			line2Departures.forEach((lineId, departures) -> {
+				if (departures > minDepartures) {
+					lineIds.add(lineId);
+				}
+			});
+			return lineIds;
+		}
+	}
+
+	/**
+	 * Sets attributeName to the value returned by the value function, or leaves it unchanged if that returns null.
+	 */
+	record StopTagRule(String attributeName, Function<StopServiceData, String> valueFunction) {
+	}
+}
@@ -0,0 +1,186 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.router.TripStructureUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author vsp-gleich
+ */
+public class BatchedMultithreadedModuleTest {
+
+	@Test
+	public void testEachPlanHandledOnceByOneAlgoInstance() {
+		GlobalConfigGroup globalConfigGroup = new GlobalConfigGroup();
+		globalConfigGroup.setNumberOfThreads(3);
+		Map<Plan, Integer> plan2HandledCount = new ConcurrentHashMap<>();
+		AtomicInteger algoInstances = new AtomicInteger();
+		AtomicInteger finishedHooks = new AtomicInteger();
+
+		BatchedMultithreadedModule module = new BatchedMultithreadedModule(globalConfigGroup, 2) {
+			@Override
+			public PlanAlgorithm getPlanAlgoInstance(Random rnd) {
+				algoInstances.incrementAndGet();
+				List<Thread> usedBy = new ArrayList<>();
+				return plan -> {
+					usedBy.add(Thread.currentThread());
+					Assertions.assertEquals(1, usedBy.stream().distinct().count(), "plan algo instance used by more than one thread");
+					plan2HandledCount.merge(plan, 1, Integer::sum);
+				};
+			}
+
+			@Override
+			protected void afterFinishReplanningHook() {
+				finishedHooks.incrementAndGet();
+			}
+		};
+
+		List<Plan> plans = new ArrayList<>();
+		module.prepareReplanning(null);
+		for (int i = 0; i < 101; i++) {
+			Plan plan = PopulationUtils.createPlan();
+			plans.add(plan);
+			module.handlePlan(plan);
+		}
+		module.finishReplanning();
+
+		Assertions.assertEquals(3, algoInstances.get());
+		Assertions.assertEquals(1, finishedHooks.get());
+		Assertions.assertEquals(plans.size(), plan2HandledCount.size());
+		for (Plan plan : plans) {
+			Assertions.assertEquals(1, plan2HandledCount.get(plan), "each plan should be handled exactly once");
+		}
+	}
+
+	@Test
+	public void testSameSeedGivesIdenticalPlansForAnyScheduling() {
+		Map<Id<Person>, List<String>> firstRun = replanWithRandomModeChanges(4, 4711);
+		Assertions.assertEquals(firstRun, replanWithRandomModeChanges(4, 4711), "same seed, same number of threads");
+		Assertions.assertEquals(firstRun, replanWithRandomModeChanges(1, 4711), "same seed, different number of threads");
+		Assertions.assertNotEquals(firstRun, replanWithRandomModeChanges(4, 815), "different seed");
+	}
+
+	/**
+	 * Each plan algorithm changes the mode of one randomly chosen leg per plan and spends a random amount of time on it,
+	 * so the workers claim the plans in a different order in every run.
+	 *
+	 * @return the leg modes of the replanned plans
+	 */
+	private static Map<Id<Person>, List<String>> replanWithRandomModeChanges(int numberOfThreads, long randomSeed) {
+		GlobalConfigGroup globalConfigGroup = new GlobalConfigGroup();
+		globalConfigGroup.setNumberOfThreads(numberOfThreads);
+		globalConfigGroup.setRandomSeed(randomSeed);
+
+		BatchedMultithreadedModule module = new BatchedMultithreadedModule(globalConfigGroup, 1) {
+			@Override
+			public PlanAlgorithm getPlanAlgoInstance(Random rnd) {
+				return plan -> {
+					List<Leg> legs = TripStructureUtils.getLegs(plan);
+					legs.get(rnd.nextInt(legs.size())).setMode(TransportMode.bike);
+					long busyUntil = System.nanoTime() + ThreadLocalRandom.current().nextLong(100_000);
+					while (System.nanoTime() < busyUntil) {
+						Thread.onSpinWait();
+					}
+				};
+			}
+		};
+
+		List<Plan> plans = new ArrayList<>();
+		module.prepareReplanning(null);
+		for (int i = 0; i < 200; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId(i));
+			Plan plan = PlanTripIndexTest.createPlan();
+			person.addPlan(plan);
+			plans.add(plan);
+			module.handlePlan(plan);
+		}
+		module.finishReplanning();
+
+		Map<Id<Person>, List<String>> person2LegModes = new HashMap<>();
+		for (Plan plan : plans) {
+			person2LegModes.put(plan.getPerson().getId(), TripStructureUtils.getLegs(plan).stream().map(Leg::getMode).toList());
+		}
+		return person2LegModes;
+	}
+
+	@Test
+	public void testRouterCallBudgetWithLowestScoreFirst() {
+		GlobalConfigGroup globalConfigGroup = new GlobalConfigGroup();
+		globalConfigGroup.setNumberOfThreads(0);
+		SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup = new SingleTripStrategiesConfigGroup();
+		singleTripStrategiesConfigGroup.setReplanningRouterCallBudget(10);
+		singleTripStrategiesConfigGroup.setReplanningPriority(SingleTripStrategiesConfigGroup.ReplanningPriority.lowestScoreFirst);
+		AtomicLong routerCalls = new AtomicLong();
+		List<Plan> handledPlans = new ArrayList<>();
+
+		BatchedMultithreadedModule module = new BatchedMultithreadedModule(globalConfigGroup, singleTripStrategiesConfigGroup) {
+			@Override
+			public PlanAlgorithm getPlanAlgoInstance(Random rnd) {
+				return plan -> {
+					routerCalls.incrementAndGet();
+					handledPlans.add(plan);
+				};
+			}
+
+			@Override
+			protected long getRouterCalls() {
+				return routerCalls.get();
+			}
+		};
+
+		module.prepareReplanning(null);
+		for (int i = 0; i < 30; i++) {
+			// scores 29, 28, ..., 0
+			Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId(i));
+			Plan oldPlan = PopulationUtils.createPlan();
+			oldPlan.setScore(29. - i);
+			person.addPlan(oldPlan);
+			Plan newPlan = PopulationUtils.createPlan();
+			person.addPlan(newPlan);
+			module.handlePlan(newPlan);
+		}
+		module.finishReplanning();
+
+		Assertions.assertEquals(10, handledPlans.size(), "budget of 10 router calls should stop replanning after 10 plans");
+		for (Plan plan : handledPlans) {
+			Assertions.assertTrue(Integer.parseInt(plan.getPerson().getId().toString()) >= 20, "persons with the lowest scores should be replanned first");
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.TransportMode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * @author vsp-gleich
+ */
+public class ModeSamplerTest {
+
+	private static final String[] MODES = {TransportMode.car, TransportMode.pt, TransportMode.bike, TransportMode.walk};
+
+	@Test
+	public void testSampleProportionalToWeights() {
+		ModeSampler sampler = new ModeSampler(MODES, Map.of(TransportMode.pt, 3., TransportMode.bike, 1., TransportMode.walk, 0.));
+		Random rnd = new Random(4711);
+		Map<String, Integer> mode2Count = new HashMap<>();
+		int draws = 100000;
+		for (int i = 0; i < draws; i++) {
+			mode2Count.merge(sampler.sample(TransportMode.car, false, rnd), 1, Integer::sum);
+		}
+		Assertions.assertNull(mode2Count.get(TransportMode.car), "current mode should never be chosen");
+		Assertions.assertNull(mode2Count.get(TransportMode.walk), "mode with weight 0 should never be chosen");
+		Assertions.assertEquals(0.75, mode2Count.get(TransportMode.pt) / (double) draws, 0.01);
+		Assertions.assertEquals(0.25, mode2Count.get(TransportMode.bike) / (double) draws, 0.01);
+	}
+
+	@Test
+	public void testForbidCar() {
+		ModeSampler sampler = new ModeSampler(MODES, Map.of());
+		Random rnd = new Random(4711);
+		for (int i = 0; i < 1000; i++) {
+			Assertions.assertNotEquals(TransportMode.car, sampler.sample(TransportMode.pt, true, rnd));
+			// modes not in the list can switch to all listed modes
+			Assertions.assertNotEquals(TransportMode.car, sampler.sample("ride", true, rnd));
+		}
+
+		ModeSampler carPtSampler = new ModeSampler(new String[]{TransportMode.car, TransportMode.pt}, Map.of());
+		Assertions.assertEquals(TransportMode.pt, carPtSampler.sample(TransportMode.pt, true, rnd),
+				"no other mode available, should keep the current mode");
+		Assertions.assertEquals(TransportMode.pt, carPtSampler.sample(TransportMode.car, true, rnd));
+	}
+}
@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.router.TripStructureUtils.Trip;
+import org.matsim.core.utils.timing.TimeInterpretation;
+
+import java.util.List;
+
+/**
+ * @author vsp-gleich
+ */
+public class PlanTripIndexTest {
+
+	@Test
+	public void testReplaceTripUpdatesIndex() {
+		Plan plan = createPlan();
+		PlanTripIndex index = PlanTripIndex.of(plan);
+		assertSameTrips(plan, index);
+
+		// replace the pt trip by a single walk leg, and the walk trip by an intermodal trip
+		index.replaceTrip(1, List.of(PopulationUtils.createLeg(TransportMode.walk)));
+		assertSameTrips(plan, index);
+		index.replaceTrip(0, List.of(PopulationUtils.createLeg(TransportMode.walk),
+				PopulationUtils.createStageActivityFromCoordLinkIdAndModePrefix(new Coord(1, 1), Id.createLinkId("s"), TransportMode.pt),
+				PopulationUtils.createLeg(TransportMode.pt)));
+		assertSameTrips(plan, index);
+	}
+
+	@Test
+	public void testDepartureTimesAfterReplaceTrip() {
+		Plan plan = createPlan();
+		// work ends after a duration, so its end depends on the arrival of the first trip
+		Activity work = (Activity) plan.getPlanElements().get(2);
+		work.setEndTimeUndefined();
+		work.setMaximumDuration(8 * 3600.);
+		((Leg) plan.getPlanElements().get(1)).setTravelTime(600.);
+		TimeInterpretation timeInterpretation = TimeInterpretation.create(ConfigUtils.createConfig());
+
+		PlanTripIndex index = PlanTripIndex.of(plan);
+		assertSameDepartureTimes(plan, index, timeInterpretation);
+		Assertions.assertEquals(8 * 3600. + 600. + 8 * 3600., index.getDepartureTime(1, timeInterpretation));
+
+		Leg slowerLeg = PopulationUtils.createLeg(TransportMode.walk);
+		slowerLeg.setTravelTime(1200.);
+		index.replaceTrip(0, List.of(slowerLeg));
+		assertSameDepartureTimes(plan, index, timeInterpretation);
+		Assertions.assertEquals(8 * 3600. + 1200. + 8 * 3600., index.getDepartureTime(1, timeInterpretation));
+
+		// times changed in place without changing the plan structure, e.g. by another strategy before the next replanning
+		work.setMaximumDuration(9 * 3600.);
+		PlanTripIndex newIndex = PlanTripIndex.of(plan);
+		Assertions.assertNotSame(index, newIndex);
+		assertSameDepartureTimes(plan, newIndex, timeInterpretation);
+		Assertions.assertEquals(8 * 3600. + 1200. + 9 * 3600., newIndex.getDepartureTime(1, timeInterpretation));
+	}
+
+	private static void assertSameDepartureTimes(Plan plan, PlanTripIndex index, TimeInterpretation timeInterpretation) {
+		// query backwards, so the cached times are computed in one pass
+		for (int i = index.getNumberOfTrips() - 1; i >= 0; i--) {
+			Assertions.assertEquals(timeInterpretation.decideOnActivityEndTimeAlongPlan(index.getOriginActivity(i), plan).seconds(),
+					index.getDepartureTime(i, timeInterpretation));
+		}
+	}
+
+	private static void assertSameTrips(Plan plan, PlanTripIndex index) {
+		List<Trip> trips = TripStructureUtils.getTrips(plan);
+		Assertions.assertEquals(trips.size(), index.getNumberOfTrips());
+		for (int i = 0; i < trips.size(); i++) {
+			Assertions.assertSame(trips.get(i).getOriginActivity(), index.getOriginActivity(i));
+			Assertions.assertSame(trips.get(i).getDestinationActivity(), index.getDestinationActivity(i));
+			Assertions.assertEquals(trips.get(i).getTripElements(), index.getTrip(i).getTripElements());
+			Assertions.assertSame(trips.get(i).getOriginActivity(), plan.getPlanElements().get(index.getOriginActivityPlanElementIndex(i)));
+		}
+	}
+
+	static Plan createPlan() {
+		Plan plan = PopulationUtils.createPlan();
+		Activity home = PopulationUtils.createActivityFromCoord("home", new Coord(0, 0));
+		home.setEndTime(8 * 3600.);
+		plan.addActivity(home);
+		plan.addLeg(PopulationUtils.createLeg(TransportMode.walk));
+		Activity work = PopulationUtils.createActivityFromCoord("work", new Coord(1000, 0));
+		work.setEndTime(17 * 3600.);
+		plan.addActivity(work);
+		plan.addLeg(PopulationUtils.createLeg(TransportMode.walk));
+		plan.addActivity(PopulationUtils.createStageActivityFromCoordLinkIdAndModePrefix(new Coord(900, 0), Id.createLinkId("s1"), TransportMode.pt));
+		plan.addLeg(PopulationUtils.createLeg(TransportMode.pt));
+		plan.addActivity(PopulationUtils.createStageActivityFromCoordLinkIdAndModePrefix(new Coord(100, 0), Id.createLinkId("s2"), TransportMode.pt));
+		plan.addLeg(PopulationUtils.createLeg(TransportMode.walk));
+		Activity shop = PopulationUtils.createActivityFromCoord("shop", new Coord(0, 100));
+		shop.setEndTime(18 * 3600.);
+		plan.addActivity(shop);
+		plan.addLeg(PopulationUtils.createLeg(TransportMode.walk));
+		plan.addActivity(PopulationUtils.createActivityFromCoord("home", new Coord(0, 0)));
+		return plan;
+	}
+}
@@ -0,0 +1,183 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Injector;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.RoutingModule;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.TripRouterModule;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.scenario.ScenarioByInstanceModule;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.timing.TimeInterpretation;
+import org.matsim.core.utils.timing.TimeInterpretationModule;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.extensions.pt.routing.ConcurrentRoutingExecutor;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author vsp-gleich
+ */
+public class RandomMultipleTripsPlanRouterTest {
+
+	@Test
+	public void testReRouteNumberAndFractionOfTrips() {
+		final Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans1.xml");
+		final Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		com.google.inject.Injector injector = Injector.createInjector(scenario.getConfig(), new AbstractModule() {
+			@Override
+			public void install() {
+				install(new TripRouterModule());
+				install(new TimeInterpretationModule());
+				install(new ScenarioByInstanceModule(scenario));
+				addTravelTimeBinding("car").toInstance(new FreespeedTravelTimeAndDisutility(config.scoring()));
+				addTravelDisutilityFactoryBinding("car").toInstance(new OnlyTimeDependentTravelDisutilityFactory());
+			}
+		});
+		List<TripRouter> tripRouters = List.of(injector.getInstance(TripRouter.class), injector.getInstance(TripRouter.class));
+		Plan plan = scenario.getPopulation().getPersons().get(Id.createPersonId(1)).getSelectedPlan();
+		int carTrips = removeCarRoutes(plan);
+		Assertions.assertEquals(2, carTrips);
+
+		SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup = new SingleTripStrategiesConfigGroup();
+		singleTripStrategiesConfigGroup.setMultipleTripsReRouteNumber(2);
+		ConcurrentRoutingExecutor executor = new ConcurrentRoutingExecutor(2);
+		new RandomMultipleTripsPlanRouter(tripRouters, executor, scenario.getActivityFacilities(), MatsimRandom.getLocalInstance(),
+				singleTripStrategiesConfigGroup, TimeInterpretation.create(config)).run(plan);
+		Assertions.assertEquals(2, countCarLegsWithRoute(plan), "both trips should have been rerouted concurrently");
+
+		removeCarRoutes(plan);
+		singleTripStrategiesConfigGroup.setMultipleTripsReRouteFraction(0.5);
+		new RandomMultipleTripsPlanRouter(tripRouters, executor, scenario.getActivityFacilities(), MatsimRandom.getLocalInstance(),
+				singleTripStrategiesConfigGroup, TimeInterpretation.create(config)).run(plan);
+		Assertions.assertEquals(1, countCarLegsWithRoute(plan), "half of the trips should have been rerouted");
+		Assertions.assertEquals(2, TripStructureUtils.getTrips(plan).size());
+	}
+
+	@Test
+	public void testTripsRoutedInParallel() {
+		final Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans1.xml");
+		final Scenario scenario = ScenarioUtils.loadScenario(config);
+		Plan plan = scenario.getPopulation().getPersons().get(Id.createPersonId(1)).getSelectedPlan();
+		removeCarRoutes(plan);
+
+		// each routing module only returns once the other one was called, which requires both trips in flight at once
+		CountDownLatch bothTripsInFlight = new CountDownLatch(2);
+		Set<String> routingThreads = ConcurrentHashMap.newKeySet();
+		RoutingModule routingModule = request -> {
+			routingThreads.add(Thread.currentThread().getName());
+			bothTripsInFlight.countDown();
+			try {
+				if (!bothTripsInFlight.await(10, TimeUnit.SECONDS)) {
+					throw new IllegalStateException("trips were not routed in parallel");
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			return List.of(createCarLeg());
+		};
+		List<TripRouter> tripRouters = List.of(createTripRouter(config, routingModule), createTripRouter(config, routingModule));
+
+		SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup = new SingleTripStrategiesConfigGroup();
+		singleTripStrategiesConfigGroup.setMultipleTripsReRouteNumber(2);
+		new RandomMultipleTripsPlanRouter(tripRouters, new ConcurrentRoutingExecutor(2), scenario.getActivityFacilities(),
+				MatsimRandom.getLocalInstance(), singleTripStrategiesConfigGroup, TimeInterpretation.create(config)).run(plan);
+
+		Assertions.assertEquals(2, routingThreads.size(), "each trip router should route in its own thread");
+		Assertions.assertEquals(2, countCarLegsWithRoute(plan));
+	}
+
+	@Test
+	public void testRoutingExceptionPropagated() {
+		final Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans1.xml");
+		final Scenario scenario = ScenarioUtils.loadScenario(config);
+		Plan plan = scenario.getPopulation().getPersons().get(Id.createPersonId(1)).getSelectedPlan();
+		removeCarRoutes(plan);
+
+		// the second trip router is run on the pool, its exception has to reach the replanning thread
+		RoutingModule routingModule = request -> List.of(createCarLeg());
+		RoutingModule failingRoutingModule = request -> {
+			throw new IllegalStateException("no route found");
+		};
+		List<TripRouter> tripRouters = List.of(createTripRouter(config, routingModule), createTripRouter(config, failingRoutingModule));
+
+		SingleTripStrategiesConfigGroup singleTripStrategiesConfigGroup = new SingleTripStrategiesConfigGroup();
+		singleTripStrategiesConfigGroup.setMultipleTripsReRouteNumber(2);
+		RandomMultipleTripsPlanRouter planRouter = new RandomMultipleTripsPlanRouter(tripRouters, new ConcurrentRoutingExecutor(2),
+				scenario.getActivityFacilities(), MatsimRandom.getLocalInstance(), singleTripStrategiesConfigGroup, TimeInterpretation.create(config));
+
+		IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, () -> planRouter.run(plan));
+		Assertions.assertEquals("no route found", exception.getMessage());
+		Assertions.assertEquals(0, countCarLegsWithRoute(plan), "no trip should be replaced if routing failed");
+	}
+
+	private static TripRouter createTripRouter(Config config, RoutingModule carRoutingModule) {
+		return new TripRouter.Builder(config).setRoutingModule(TransportMode.car, carRoutingModule).build();
+	}
+
+	private static Leg createCarLeg() {
+		Leg leg = PopulationUtils.createLeg(TransportMode.car);
+		leg.setTravelTime(600.);
+		leg.setRoute(RouteUtils.createGenericRouteImpl(Id.createLinkId("1"), Id.createLinkId("20")));
+		return leg;
+	}
+
+	private static int removeCarRoutes(Plan plan) {
+		int carLegs = 0;
+		for (Leg leg : TripStructureUtils.getLegs(plan)) {
+			if (leg.getMode().equals(TransportMode.car)) {
+				leg.setRoute(null);
+				carLegs++;
+			}
+		}
+		return carLegs;
+	}
+
+	private static int countCarLegsWithRoute(Plan plan) {
+		return (int) TripStructureUtils.getLegs(plan).stream()
+				.filter(leg -> leg.getMode().equals(TransportMode.car) && leg.getRoute() != null)
+				.count();
+	}
+}
@@ -0,0 +1,152 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Injector;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.TripRouterModule;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.router.TripStructureUtils.Trip;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.scenario.ScenarioByInstanceModule;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.timing.TimeInterpretationModule;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.facilities.FacilitiesUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * @author vsp-gleich
+ */
+public class RouteStoreTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void testReuseRoutesAcrossRuns() {
+		final Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans1.xml");
+		ConfigUtils.addOrGetModule(config, SingleTripStrategiesConfigGroup.class).setRouteStoreFile(tempDir.resolve("routeStore.bin").toString());
+		final Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		com.google.inject.Injector injector = Injector.createInjector(scenario.getConfig(), new AbstractModule() {
+			@Override
+			public void install() {
+				install(new TripRouterModule());
+				install(new TimeInterpretationModule());
+				install(new ScenarioByInstanceModule(scenario));
+				addTravelTimeBinding("car").toInstance(new FreespeedTravelTimeAndDisutility(config.scoring()));
+				addTravelDisutilityFactoryBinding("car").toInstance(new OnlyTimeDependentTravelDisutilityFactory());
+			}
+		});
+		TripRouter tripRouter = injector.getInstance(TripRouter.class);
+		Person person = scenario.getPopulation().getPersons().get(Id.createPersonId(1));
+		Trip trip = TripStructureUtils.getTrips(person.getSelectedPlan()).get(0);
+
+		// first run: every trip is routed and stored, but not reused within the run
+		RouteStore firstRun = new RouteStore(config, scenario);
+		ReplannedTripsCounter firstRunCounter = new ReplannedTripsCounter("firstRun");
+		List<? extends PlanElement> routed = calcRoute(firstRun, firstRunCounter, tripRouter, trip, person, 6 * 3600.);
+		assertSameLegs(routed, calcRoute(firstRun, firstRunCounter, tripRouter, trip, person, 6 * 3600. + 10.));
+		Assertions.assertEquals(2, firstRun.getMisses(), "trips stored in this run should not be reused in this run");
+		Assertions.assertEquals(0, firstRun.getHits());
+		calcRoute(firstRun, firstRunCounter, tripRouter, trip, person, 9 * 3600.);
+		Assertions.assertEquals(3, firstRun.getMisses());
+		Assertions.assertEquals(3, firstRunCounter.getRouterCalls());
+		firstRun.notifyShutdown(null);
+
+		// second run: reused once from the memory-mapped file, then routed again
+		RouteStore secondRun = new RouteStore(config, scenario);
+		ReplannedTripsCounter secondRunCounter = new ReplannedTripsCounter("secondRun");
+		List<? extends PlanElement> reused = calcRoute(secondRun, secondRunCounter, tripRouter, trip, person, 6 * 3600. + 60.);
+		Assertions.assertEquals(1, secondRun.getHits());
+		Assertions.assertEquals(0, secondRun.getMisses());
+		Assertions.assertEquals(0, secondRunCounter.getRouterCalls(), "reused trips should not count as router calls");
+		assertSameLegs(routed, reused);
+		Leg reusedCarLeg = TripStructureUtils.getLegs(reused).stream().filter(leg -> leg.getMode().equals(TransportMode.car)).findFirst().orElseThrow();
+		Leg routedCarLeg = TripStructureUtils.getLegs(routed).stream().filter(leg -> leg.getMode().equals(TransportMode.car)).findFirst().orElseThrow();
+		Assertions.assertEquals(routedCarLeg.getDepartureTime().seconds() + 60., reusedCarLeg.getDepartureTime().seconds(), 1e-6,
+				"departure times should be shifted to the requested departure time");
+		calcRoute(secondRun, secondRunCounter, tripRouter, trip, person, 6 * 3600. + 60.);
+		Assertions.assertEquals(1, secondRun.getHits(), "a stored trip should be reused at most once");
+		Assertions.assertEquals(1, secondRun.getMisses());
+		Assertions.assertEquals(1, secondRunCounter.getRouterCalls());
+		secondRun.notifyShutdown(null);
+
+		// other scoring parameters: stored trips are not reused
+		config.scoring().setPerforming_utils_hr(config.scoring().getPerforming_utils_hr() + 1.);
+		RouteStore otherConfigRun = new RouteStore(config, scenario);
+		ReplannedTripsCounter otherConfigRunCounter = new ReplannedTripsCounter("otherConfigRun");
+		calcRoute(otherConfigRun, otherConfigRunCounter, tripRouter, trip, person, 9 * 3600.);
+		Assertions.assertEquals(0, otherConfigRun.getHits(), "trips stored with other scoring parameters should not be reused");
+		Assertions.assertEquals(1, otherConfigRun.getMisses());
+		Assertions.assertEquals(1, otherConfigRunCounter.getRouterCalls());
+		otherConfigRun.notifyShutdown(null);
+	}
+
+	@Test
+	public void testContextHashDependsOnNetwork() {
+		final Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		final Scenario scenario = ScenarioUtils.loadScenario(config);
+		long hash = RouteStore.hashContext(config, scenario.getNetwork(), scenario.getTransitSchedule());
+		Assertions.assertEquals(hash, RouteStore.hashContext(config, scenario.getNetwork(), scenario.getTransitSchedule()));
+
+		Link link = scenario.getNetwork().getLinks().get(Id.createLinkId("1"));
+		link.setLength(link.getLength() + 1.);
+		Assertions.assertNotEquals(hash, RouteStore.hashContext(config, scenario.getNetwork(), scenario.getTransitSchedule()),
+				"routes stored on another network should not be reused");
+	}
+
+	private static List<? extends PlanElement> calcRoute(RouteStore routeStore, ReplannedTripsCounter replannedTripsCounter, TripRouter tripRouter,
+														 Trip trip, Person person, double departureTime) {
+		return routeStore.calcRoute(tripRouter, replannedTripsCounter, TransportMode.car, FacilitiesUtils.toFacility(trip.getOriginActivity(), null),
+				FacilitiesUtils.toFacility(trip.getDestinationActivity(), null), departureTime, person, trip.getTripAttributes());
+	}
+
+	private static void assertSameLegs(List<? extends PlanElement> expected, List<? extends PlanElement> actual) {
+		List<Leg> expectedLegs = TripStructureUtils.getLegs(expected);
+		List<Leg> actualLegs = TripStructureUtils.getLegs(actual);
+		Assertions.assertEquals(expected.size(), actual.size());
+		Assertions.assertEquals(expectedLegs.size(), actualLegs.size());
+		for (int i = 0; i < expectedLegs.size(); i++) {
+			Assertions.assertEquals(expectedLegs.get(i).getMode(), actualLegs.get(i).getMode());
+			Assertions.assertEquals(expectedLegs.get(i).getRoute().getRouteDescription(), actualLegs.get(i).getRoute().getRouteDescription());
+			Assertions.assertEquals(expectedLegs.get(i).getRoute().getDistance(), actualLegs.get(i).getRoute().getDistance(), 1e-6);
+		}
+	}
+}
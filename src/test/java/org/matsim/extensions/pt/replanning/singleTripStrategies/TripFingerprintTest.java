@@ -0,0 +1,78 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author vsp-gleich
+ */
+public class TripFingerprintTest {
+
+	@Test
+	public void testStructurallyIdenticalTrips() {
+		List<PlanElement> trip = createCarTrip("2");
+		Assertions.assertTrue(TripFingerprint.isUnchanged(trip, createCarTrip("2")), "separately created identical trips should be unchanged");
+		Assertions.assertFalse(TripFingerprint.isUnchanged(trip, createCarTrip("3")), "different network links");
+
+		List<PlanElement> laterDeparture = createCarTrip("2");
+		((Leg) laterDeparture.get(2)).setDepartureTime(8 * 3600. + 60.);
+		Assertions.assertFalse(TripFingerprint.isUnchanged(trip, laterDeparture), "different departure time");
+
+		List<PlanElement> otherVehicle = createCarTrip("2");
+		((NetworkRoute) ((Leg) otherVehicle.get(2)).getRoute()).setVehicleId(Id.createVehicleId("v2"));
+		Assertions.assertFalse(TripFingerprint.isUnchanged(trip, otherVehicle), "different vehicle");
+
+		List<PlanElement> otherMode = createCarTrip("2");
+		((Leg) otherMode.get(0)).setMode(TransportMode.bike);
+		Assertions.assertFalse(TripFingerprint.isUnchanged(trip, otherMode), "different access mode");
+	}
+
+	private static List<PlanElement> createCarTrip(String middleLinkId) {
+		List<PlanElement> trip = new ArrayList<>();
+		Leg access = PopulationUtils.createLeg(TransportMode.walk);
+		access.setDepartureTime(8 * 3600. - 60.);
+		access.setTravelTime(60.);
+		access.setRoute(RouteUtils.createGenericRouteImpl(Id.createLinkId("0"), Id.createLinkId("1")));
+		trip.add(access);
+		Activity interaction = PopulationUtils.createStageActivityFromCoordLinkIdAndModePrefix(null, Id.createLinkId("1"), TransportMode.car);
+		trip.add(interaction);
+		Leg car = PopulationUtils.createLeg(TransportMode.car);
+		car.setDepartureTime(8 * 3600.);
+		car.setTravelTime(600.);
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"), List.of(Id.createLinkId(middleLinkId)), Id.createLinkId("4"));
+		route.setVehicleId(Id.createVehicleId("v1"));
+		car.setRoute(route);
+		trip.add(car);
+		return trip;
+	}
+}
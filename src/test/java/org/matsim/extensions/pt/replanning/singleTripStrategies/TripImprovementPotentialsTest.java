@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.TripStructureUtils;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author vsp-gleich
+ */
+public class TripImprovementPotentialsTest {
+
+	@Test
+	public void testSelectTripsProportionalToImprovementPotential() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("p"));
+		Plan plan = PlanTripIndexTest.createPlan();
+		person.addPlan(plan);
+
+		// home -> work as fast as the teleport estimate, work -> shop by far slower, shop -> home a bit slower
+		List<Activity> activities = TripStructureUtils.getActivities(plan, TripStructureUtils.StageActivityHandling.ExcludeStageActivities);
+		activities.get(1).setStartTime(8 * 3600. + 100.);
+		activities.get(2).setStartTime(17 * 3600. + 3600.);
+		activities.get(3).setStartTime(18 * 3600. + 100.);
+
+		TripImprovementPotentials tripImprovementPotentials = new TripImprovementPotentials(ConfigUtils.createConfig(), null, null);
+		tripImprovementPotentials.recordExperiencedPlan(plan, plan);
+
+		// strategies replan a copy of the executed plan
+		Plan copyOfExecutedPlan = PopulationUtils.createPlan(person);
+		PopulationUtils.copyFromTo(plan, copyOfExecutedPlan);
+
+		Random rnd = new Random(4711);
+		int[] counts = new int[3];
+		int draws = 100000;
+		for (int i = 0; i < draws; i++) {
+			counts[tripImprovementPotentials.selectTrip(copyOfExecutedPlan, 3, rnd)]++;
+		}
+		double weightShop = TripImprovementPotentials.MINIMUM_WEIGHT_S + 3600. - Math.hypot(1000., 100.) / 10.;
+		double weightHome = TripImprovementPotentials.MINIMUM_WEIGHT_S + 100. - 100. / 10.;
+		double sum = TripImprovementPotentials.MINIMUM_WEIGHT_S + weightShop + weightHome;
+		Assertions.assertEquals(TripImprovementPotentials.MINIMUM_WEIGHT_S / sum, counts[0] / (double) draws, 0.005);
+		Assertions.assertEquals(weightShop / sum, counts[1] / (double) draws, 0.005);
+		Assertions.assertEquals(weightHome / sum, counts[2] / (double) draws, 0.005);
+
+		// plan with a different number of trips: uniform
+		int[] uniformCounts = new int[4];
+		for (int i = 0; i < draws; i++) {
+			uniformCounts[tripImprovementPotentials.selectTrip(plan, 4, rnd)]++;
+		}
+		for (int count : uniformCounts) {
+			Assertions.assertEquals(0.25, count / (double) draws, 0.01);
+		}
+
+		// another plan of the person with the same number of trips, but a different mode on one trip: uniform
+		Plan otherPlan = PopulationUtils.createPlan(person);
+		PopulationUtils.copyFromTo(plan, otherPlan);
+		TripStructureUtils.getLegs(otherPlan).get(0).setMode(TransportMode.bike);
+		int[] otherPlanCounts = new int[3];
+		for (int i = 0; i < draws; i++) {
+			otherPlanCounts[tripImprovementPotentials.selectTrip(otherPlan, 3, rnd)]++;
+		}
+		for (int count : otherPlanCounts) {
+			Assertions.assertEquals(1. / 3., count / (double) draws, 0.01);
+		}
+
+		// once the other plan was executed as well, the potentials of both plans apply, e.g. if selected at random
+		person.addPlan(otherPlan);
+		Plan experiencedOtherPlan = PopulationUtils.createPlan(person);
+		PopulationUtils.copyFromTo(otherPlan, experiencedOtherPlan);
+		List<Activity> otherActivities = TripStructureUtils.getActivities(experiencedOtherPlan, TripStructureUtils.StageActivityHandling.ExcludeStageActivities);
+		otherActivities.get(1).setStartTime(8 * 3600. + 3600.);
+		otherActivities.get(2).setStartTime(17 * 3600. + 100.);
+		otherActivities.get(3).setStartTime(18 * 3600. + 100.);
+		tripImprovementPotentials.recordExperiencedPlan(otherPlan, experiencedOtherPlan);
+		int[] executedPlanCounts = new int[3];
+		int[] executedOtherPlanCounts = new int[3];
+		for (int i = 0; i < draws; i++) {
+			executedPlanCounts[tripImprovementPotentials.selectTrip(copyOfExecutedPlan, 3, rnd)]++;
+			executedOtherPlanCounts[tripImprovementPotentials.selectTrip(otherPlan, 3, rnd)]++;
+		}
+		Assertions.assertEquals(weightShop / sum, executedPlanCounts[1] / (double) draws, 0.005);
+		double weightWork = TripImprovementPotentials.MINIMUM_WEIGHT_S + 3600. - Math.hypot(1000., 0.) / 10.;
+		Assertions.assertTrue(executedOtherPlanCounts[0] > executedOtherPlanCounts[1], "slow trip to work should be chosen most often");
+		Assertions.assertEquals(weightWork / (weightWork + TripImprovementPotentials.MINIMUM_WEIGHT_S + weightHome),
+				executedOtherPlanCounts[0] / (double) draws, 0.005);
+	}
+}
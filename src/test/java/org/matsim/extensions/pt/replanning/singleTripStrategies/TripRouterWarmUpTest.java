@@ -0,0 +1,86 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.replanning.singleTripStrategies;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Injector;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.TripRouterModule;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.scenario.ScenarioByInstanceModule;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.timing.TimeInterpretationModule;
+import org.matsim.examples.ExamplesUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * @author vsp-gleich
+ */
+public class TripRouterWarmUpTest {
+
+	@Test
+	public void testWarmTripRoutersPerModule() {
+		final Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans1.xml");
+		config.global().setNumberOfThreads(2);
+		ConfigUtils.addOrGetModule(config, SingleTripStrategiesConfigGroup.class).setRouterWarmUpTripsPerMode(5);
+		final Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		com.google.inject.Injector injector = Injector.createInjector(scenario.getConfig(), new AbstractModule() {
+			@Override
+			public void install() {
+				install(new TripRouterModule());
+				install(new TimeInterpretationModule());
+				install(new ScenarioByInstanceModule(scenario));
+				addTravelTimeBinding("car").toInstance(new FreespeedTravelTimeAndDisutility(config.scoring()));
+				addTravelDisutilityFactoryBinding("car").toInstance(new OnlyTimeDependentTravelDisutilityFactory());
+			}
+		});
+		TripRouterWarmUp tripRouterWarmUp = injector.getInstance(TripRouterWarmUp.class);
+		Assertions.assertSame(tripRouterWarmUp, injector.getInstance(TripRouterWarmUp.class), "should be a singleton");
+		TripRouter newTripRouter = injector.getInstance(TripRouter.class);
+		// e.g. RandomSingleTripReRoute with one and RandomMultipleTripsReRoute with two trip routers per thread
+		Supplier<TripRouter> firstModule = tripRouterWarmUp.reserve(2, () -> newTripRouter);
+		Supplier<TripRouter> secondModule = tripRouterWarmUp.reserve(4, () -> newTripRouter);
+		tripRouterWarmUp.notifyStartup(null);
+
+		Set<TripRouter> warmTripRouters = new HashSet<>();
+		for (int i = 0; i < 2; i++) {
+			warmTripRouters.add(firstModule.get());
+		}
+		for (int i = 0; i < 4; i++) {
+			warmTripRouters.add(secondModule.get());
+		}
+		Assertions.assertEquals(6, warmTripRouters.size(), "each module should get its own warm trip routers");
+		Assertions.assertFalse(warmTripRouters.contains(newTripRouter));
+		Assertions.assertSame(newTripRouter, firstModule.get(), "no warm trip routers left");
+		Assertions.assertSame(newTripRouter, secondModule.get(), "no warm trip routers left");
+	}
+}
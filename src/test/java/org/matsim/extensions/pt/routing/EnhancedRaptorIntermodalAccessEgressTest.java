@@ -23,6 +23,7 @@ import ch.sbb.matsim.routing.pt.raptor.RaptorIntermodalAccessEgress.RIntermodalA
 import ch.sbb.matsim.routing.pt.raptor.RaptorParameters;
 import ch.sbb.matsim.routing.pt.raptor.RaptorStopFinder;
 import com.google.inject.Singleton;
+import com.google.inject.multibindings.MapBinder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Assertions;
@@ -53,6 +54,7 @@ import org.matsim.core.population.routes.GenericRouteImpl;
 import org.matsim.core.scenario.ScenarioByInstanceModule;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.scoring.functions.ScoringParametersForPerson;
+import org.matsim.extensions.pt.PtExtensionsConfigGroup;
 import org.matsim.testcases.MatsimTestUtils;
 import playground.vsp.scoring.IncomeDependentUtilityOfMoneyPersonScoringParameters;
 
@@ -473,4 +475,205 @@ public class EnhancedRaptorIntermodalAccessEgressTest {
 		Assertions.assertEquals(legs.size(), result.routeParts.size(), "Input legs != output legs!");
 	}
 
+	@Test
+	public final void testLegCostCache() {
+		Config config = ConfigUtils.createConfig();
+		PtExtensionsConfigGroup ptExtensionsConfigGroup = ConfigUtils.addOrGetModule(config, PtExtensionsConfigGroup.class);
+		ptExtensionsConfigGroup.setIntermodalAccessEgressLegCostCacheDistanceBinSize_m(100.);
+		ptExtensionsConfigGroup.setIntermodalAccessEgressLegCostCacheTravelTimeBinSize_s(60.);
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("personSubpopulationNull"));
+		EnhancedRaptorIntermodalAccessEgress raptorIntermodalAccessEgress = createWalkOnlyRaptorIntermodalAccessEgress(config);
+
+		/*
+		 * walk leg on bin boundaries: -1 * (-1.2 -0.00015*200 -(0.00016+0.00011)*120 -0.00017*200 ) = 1.2964
+		 * the second leg falls into the same bins (200m, 120s) and gets the cached disutility
+		 */
+		RIntermodalAccessEgress result = raptorIntermodalAccessEgress.calcIntermodalAccessEgress(
+				List.of(createWalkLeg(200., 120.)), null, person, RaptorStopFinder.Direction.ACCESS);
+		Assertions.assertEquals(1.2964, result.disutility, MatsimTestUtils.EPSILON, "Total disutility is wrong!");
+
+		result = raptorIntermodalAccessEgress.calcIntermodalAccessEgress(
+				List.of(createWalkLeg(210., 110.)), null, person, RaptorStopFinder.Direction.ACCESS);
+		// unquantized it would be -1 * (-1.2 -0.00015*210 -(0.00016+0.00011)*110 -0.00017*210 ) = 1.2969
+		Assertions.assertEquals(1.2964, result.disutility, MatsimTestUtils.EPSILON, "same bins should reuse the cached disutility");
+		Assertions.assertEquals(110., result.travelTime, MatsimTestUtils.EPSILON, "travel time should not be quantized");
+	}
+
+	@Test
+	public final void testLegCostCacheDisabledForPersonSpecificScoringParameters() {
+		Config config = ConfigUtils.createConfig();
+		PtExtensionsConfigGroup ptExtensionsConfigGroup = ConfigUtils.addOrGetModule(config, PtExtensionsConfigGroup.class);
+		ptExtensionsConfigGroup.setIntermodalAccessEgressLegCostCacheDistanceBinSize_m(100.);
+		ptExtensionsConfigGroup.setIntermodalAccessEgressLegCostCacheTravelTimeBinSize_s(60.);
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("personSubpopulationNull"));
+		ScoringParametersForPerson subpopulationScoringParameters = createWalkOnlyInjector(config).getInstance(ScoringParametersForPerson.class);
+		// same values, but not known to depend on the subpopulation only
+		ScoringParametersForPerson personSpecificScoringParameters = subpopulationScoringParameters::getScoringParameters;
+		EnhancedRaptorIntermodalAccessEgress raptorIntermodalAccessEgress = new EnhancedRaptorIntermodalAccessEgress(config, personSpecificScoringParameters);
+
+		RIntermodalAccessEgress result = raptorIntermodalAccessEgress.calcIntermodalAccessEgress(
+				List.of(createWalkLeg(210., 110.)), null, person, RaptorStopFinder.Direction.ACCESS);
+		// unquantized: -1 * (-1.2 -0.00015*210 -(0.00016+0.00011)*110 -0.00017*210 ) = 1.2969
+		Assertions.assertEquals(1.2969, result.disutility, MatsimTestUtils.EPSILON, "Total disutility is wrong!");
+	}
+
+	@Test
+	public final void testZonalDrtFareModel() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("personSubpopulationNull"));
+		// zonal fare: 5 into zone B, 1.5 elsewhere
+		DrtFareModel zonalFareModel = (leg, farePerson) -> leg.getRoute().getEndLinkId().equals(Id.createLinkId("zoneB")) ? 5.0 : 1.5;
+		EnhancedRaptorIntermodalAccessEgress defaultFares = createDrtRaptorIntermodalAccessEgress(ConfigUtils.createConfig(), null);
+		EnhancedRaptorIntermodalAccessEgress zonalFares = createDrtRaptorIntermodalAccessEgress(ConfigUtils.createConfig(), zonalFareModel);
+
+		/*
+		 * drtLeg without fare: -1 * (-2.1 -0.00024*5000 -(0.00025+0.00011)*600 -0.00026*5000 ) = 4.816
+		 * default fare: max(2.0, 1+0.0002*5000+0.0003*600) = 2.18, zonal fare: 1.5 or 5.0
+		 */
+		Assertions.assertEquals(6.996, defaultFares.calcIntermodalAccessEgress(List.of(createDrtLeg("zoneA")), null, person,
+				RaptorStopFinder.Direction.ACCESS).disutility, MatsimTestUtils.EPSILON, "Total disutility is wrong!");
+		Assertions.assertEquals(6.316, zonalFares.calcIntermodalAccessEgress(List.of(createDrtLeg("zoneA")), null, person,
+				RaptorStopFinder.Direction.ACCESS).disutility, MatsimTestUtils.EPSILON, "Total disutility is wrong!");
+		Assertions.assertEquals(9.816, zonalFares.calcIntermodalAccessEgress(List.of(createDrtLeg("zoneB")), null, person,
+				RaptorStopFinder.Direction.ACCESS).disutility, MatsimTestUtils.EPSILON, "Total disutility is wrong!");
+	}
+
+	@Test
+	public final void testDeterministicRandomizationIndependentOfOrder() {
+		Person person1 = PopulationUtils.getFactory().createPerson(Id.createPersonId("1"));
+		Person person2 = PopulationUtils.getFactory().createPerson(Id.createPersonId("2"));
+		EnhancedRaptorIntermodalAccessEgress[] raptorIntermodalAccessEgresses = new EnhancedRaptorIntermodalAccessEgress[2];
+		for (int i = 0; i < 2; i++) {
+			Config config = ConfigUtils.createConfig();
+			PtExtensionsConfigGroup ptExtensionsConfigGroup = ConfigUtils.addOrGetModule(config, PtExtensionsConfigGroup.class);
+			ptExtensionsConfigGroup.setDeterministicIntermodalAccessEgressRandomization(true);
+			PtExtensionsConfigGroup.IntermodalAccessEgressModeUtilityRandomization walkRandomization = new PtExtensionsConfigGroup.IntermodalAccessEgressModeUtilityRandomization();
+			walkRandomization.setAccessEgressMode(TransportMode.walk);
+			walkRandomization.setAdditiveRandomizationWidth(1.);
+			walkRandomization.setAdditiveRandomizationWidthFrozenPerDirectionAndMode(10.);
+			ptExtensionsConfigGroup.addIntermodalAccessEgressModeUtilityRandomization(walkRandomization);
+			raptorIntermodalAccessEgresses[i] = createWalkOnlyRaptorIntermodalAccessEgress(config);
+		}
+
+		// same legs, evaluated in different order (e.g. by different threads)
+		double person1Instance0 = raptorIntermodalAccessEgresses[0].calcIntermodalAccessEgress(
+				List.of(createWalkLeg(200., 100.)), null, person1, RaptorStopFinder.Direction.ACCESS).disutility;
+		double person2Instance0 = raptorIntermodalAccessEgresses[0].calcIntermodalAccessEgress(
+				List.of(createWalkLeg(200., 100.)), null, person2, RaptorStopFinder.Direction.ACCESS).disutility;
+		double person2Instance1 = raptorIntermodalAccessEgresses[1].calcIntermodalAccessEgress(
+				List.of(createWalkLeg(200., 100.)), null, person2, RaptorStopFinder.Direction.ACCESS).disutility;
+		double person1Instance1 = raptorIntermodalAccessEgresses[1].calcIntermodalAccessEgress(
+				List.of(createWalkLeg(200., 100.)), null, person1, RaptorStopFinder.Direction.ACCESS).disutility;
+
+		Assertions.assertEquals(person1Instance0, person1Instance1, 0.);
+		Assertions.assertEquals(person2Instance0, person2Instance1, 0.);
+		Assertions.assertNotEquals(person1Instance0, person2Instance0, "randomization should differ between persons");
+		// 1.291 without randomization
+		Assertions.assertEquals(1.291, person1Instance0, 5.5);
+	}
+
+	/**
+	 * @param drtFareModel bound for mode drt via the MapBinder, null to use the default fare model
+	 */
+	private EnhancedRaptorIntermodalAccessEgress createDrtRaptorIntermodalAccessEgress(Config config, DrtFareModel drtFareModel) {
+		config.controller().setOutputDirectory(utils.getOutputDirectory());
+		config.controller().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.deleteDirectoryIfExists);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		ScoringConfigGroup scoreCfg = config.scoring();
+		scoreCfg.setMarginalUtilityOfMoney(1.0);
+		scoreCfg.setPerforming_utils_hr(0.00011 * 3600.0);
+		scoreCfg.setMarginalUtlOfWaitingPt_utils_hr(1d); // completely irrelevant, but avoids NullPointerExceptions
+		ModeParams drtParams = scoreCfg.getOrCreateModeParams(TransportMode.drt);
+		drtParams.setConstant(-2.1);
+		drtParams.setMarginalUtilityOfDistance(-0.00024);
+		drtParams.setMarginalUtilityOfTraveling(-0.00025 * 3600.0);
+		drtParams.setMonetaryDistanceRate(-0.00026);
+
+		DrtConfigGroup drtConfigGroup = new DrtConfigGroup();
+		drtConfigGroup.setMode(TransportMode.drt);
+		DrtFareParams drtFareParams = new DrtFareParams();
+		drtFareParams.setBaseFare(1.0);
+		drtFareParams.setMinFarePerTrip(2.0);
+		drtFareParams.setDistanceFare_m(0.0002);
+		drtFareParams.setTimeFare_h(0.0003 * 3600);
+		drtConfigGroup.addParameterSet(drtFareParams);
+		ConfigUtils.addOrGetModule(config, MultiModeDrtConfigGroup.class).addParameterSet(drtConfigGroup);
+
+		com.google.inject.Injector injector = org.matsim.core.controler.Injector.createInjector(config, new AbstractModule() {
+			@Override
+			public void install() {
+				install(new NewControlerModule());
+				install(new ControlerDefaultCoreListenersModule());
+				install(new ControlerDefaultsModule());
+				install(new ScenarioByInstanceModule(scenario));
+				install(new AbstractModule() {
+					@Override
+					public void install() {
+						bind(RaptorIntermodalAccessEgress.class).to(EnhancedRaptorIntermodalAccessEgress.class);
+						if (drtFareModel != null) {
+							MapBinder.newMapBinder(binder(), String.class, DrtFareModel.class).addBinding(TransportMode.drt).toInstance(drtFareModel);
+						}
+					}
+				});
+			}
+		});
+		return (EnhancedRaptorIntermodalAccessEgress) injector.getInstance(RaptorIntermodalAccessEgress.class);
+	}
+
+	private static Leg createDrtLeg(String toLinkId) {
+		Leg drtLeg = PopulationUtils.createLeg(TransportMode.drt);
+		drtLeg.setDepartureTime(7 * 3600.0);
+		drtLeg.setTravelTime(600);
+		Route drtRoute = new DrtRoute(Id.createLinkId("dummy2"), Id.createLinkId(toLinkId));
+		drtRoute.setDistance(5000.0);
+		drtLeg.setRoute(drtRoute);
+		return drtLeg;
+	}
+
+	private EnhancedRaptorIntermodalAccessEgress createWalkOnlyRaptorIntermodalAccessEgress(Config config) {
+		return (EnhancedRaptorIntermodalAccessEgress) createWalkOnlyInjector(config).getInstance(RaptorIntermodalAccessEgress.class);
+	}
+
+	private com.google.inject.Injector createWalkOnlyInjector(Config config) {
+		config.controller().setOutputDirectory(utils.getOutputDirectory());
+		config.controller().setOverwriteFileSetting(OutputDirectoryHierarchy.OverwriteFileSetting.deleteDirectoryIfExists);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		ScoringConfigGroup scoreCfg = config.scoring();
+		scoreCfg.setMarginalUtilityOfMoney(1.0);
+		scoreCfg.setPerforming_utils_hr(0.00011 * 3600.0);
+		scoreCfg.setMarginalUtlOfWaitingPt_utils_hr(1d); // completely irrelevant, but avoids NullPointerExceptions
+		ModeParams walkParams = scoreCfg.getOrCreateModeParams(TransportMode.walk);
+		walkParams.setConstant(-1.2);
+		walkParams.setMarginalUtilityOfDistance(-0.00015);
+		walkParams.setMarginalUtilityOfTraveling(-0.00016 * 3600.0);
+		walkParams.setMonetaryDistanceRate(-0.00017);
+
+		com.google.inject.Injector injector = org.matsim.core.controler.Injector.createInjector(config, new AbstractModule() {
+			@Override
+			public void install() {
+				install(new NewControlerModule());
+				install(new ControlerDefaultCoreListenersModule());
+				install(new ControlerDefaultsModule());
+				install(new ScenarioByInstanceModule(scenario));
+				install(new AbstractModule() {
+					@Override
+					public void install() {
+						bind(RaptorIntermodalAccessEgress.class).to(EnhancedRaptorIntermodalAccessEgress.class);
+					}
+				});
+			}
+		});
+		return injector;
+	}
+
+	private static Leg createWalkLeg(double distance, double travelTime) {
+		Leg walkLeg = PopulationUtils.createLeg(TransportMode.walk);
+		walkLeg.setDepartureTime(7 * 3600.0);
+		walkLeg.setTravelTime(travelTime);
+		Route walkRoute = new GenericRouteImpl(Id.createLinkId("dummy1"), Id.createLinkId("dummy2"));
+		walkRoute.setDistance(distance);
+		walkLeg.setRoute(walkRoute);
+		return walkLeg;
+	}
 }
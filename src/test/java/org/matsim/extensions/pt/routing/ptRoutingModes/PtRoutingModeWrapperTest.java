@@ -0,0 +1,188 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.routing.ptRoutingModes;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.DefaultRoutingRequest;
+import org.matsim.core.router.RoutingModule;
+import org.matsim.extensions.pt.routing.ConcurrentRoutingExecutor;
+import org.matsim.extensions.pt.routing.ptRoutingModes.PtIntermodalRoutingModesConfigGroup.PersonAttribute2ValuePair;
+import org.matsim.extensions.pt.routing.ptRoutingModes.PtIntermodalRoutingModesConfigGroup.PtIntermodalRoutingModeParameterSet;
+import org.matsim.facilities.FacilitiesUtils;
+import org.matsim.facilities.Facility;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author vsp-gleich
+ */
+public class PtRoutingModeWrapperTest {
+
+	@Test
+	public void testPersonFilterAttributesOnlyVisibleToDelegate() {
+		PtIntermodalRoutingModeParameterSet routingModeParams = new PtIntermodalRoutingModeParameterSet();
+		routingModeParams.setRoutingMode("pt_w_drt_allowed");
+		routingModeParams.setDelegateMode(TransportMode.pt);
+		PersonAttribute2ValuePair attribute2Value = new PersonAttribute2ValuePair();
+		attribute2Value.setPersonFilterAttribute("canUseDrt");
+		attribute2Value.setPersonFilterValue("true");
+		routingModeParams.addPersonAttribute2ValuePair(attribute2Value);
+
+		List<Object> seenByDelegate = new ArrayList<>();
+		RoutingModule delegate = request -> {
+			seenByDelegate.add(request.getPerson().getAttributes().getAttribute("canUseDrt"));
+			seenByDelegate.add(request.getPerson().getAttributes().getAttribute("income"));
+			return List.of(PopulationUtils.createLeg(TransportMode.pt));
+		};
+		PtRoutingModeWrapper wrapper = new PtRoutingModeWrapper(routingModeParams, delegate);
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("1"));
+		person.getAttributes().putAttribute("income", 1000.);
+		Facility from = FacilitiesUtils.wrapLinkAndCoord(Id.createLinkId("a"), new Coord(0, 0));
+		Facility to = FacilitiesUtils.wrapLinkAndCoord(Id.createLinkId("b"), new Coord(1000, 0));
+
+		List<? extends PlanElement> route = wrapper.calcRoute(DefaultRoutingRequest.withoutAttributes(from, to, 8 * 3600., person));
+
+		Assertions.assertEquals(1, route.size());
+		Assertions.assertEquals(List.of("true", 1000.), seenByDelegate);
+		Assertions.assertNull(person.getAttributes().getAttribute("canUseDrt"), "person must not be modified");
+		Assertions.assertEquals(1, person.getAttributes().size());
+	}
+
+	@Test
+	public void testAllRoutingModesRoutedConcurrently() {
+		Config config = ConfigUtils.createConfig();
+		PtIntermodalRoutingModesConfigGroup ptIntermodalRoutingModesConfigGroup = ConfigUtils.addOrGetModule(config, PtIntermodalRoutingModesConfigGroup.class);
+		for (String routingMode : List.of("pt_w_drt_allowed", "pt_w_bike_allowed", "pt_w_walk_only")) {
+			PtIntermodalRoutingModeParameterSet routingModeParams = new PtIntermodalRoutingModeParameterSet();
+			routingModeParams.setRoutingMode(routingMode);
+			routingModeParams.setDelegateMode(TransportMode.pt);
+			PersonAttribute2ValuePair attribute2Value = new PersonAttribute2ValuePair();
+			attribute2Value.setPersonFilterAttribute("routingMode");
+			attribute2Value.setPersonFilterValue(routingMode);
+			routingModeParams.addPersonAttribute2ValuePair(attribute2Value);
+			ptIntermodalRoutingModesConfigGroup.addPtIntermodalRoutingModeParameterSet(routingModeParams);
+		}
+
+		List<RoutingModule> delegates = new ArrayList<>();
+		Map<String, com.google.inject.Provider<RoutingModule>> routingModuleProviders = new HashMap<>();
+		for (PtIntermodalRoutingModeParameterSet routingModeParams : ptIntermodalRoutingModesConfigGroup.getPtIntermodalRoutingModeParameterSets()) {
+			routingModuleProviders.put(routingModeParams.getRoutingMode(), () -> {
+				RoutingModule delegate = request -> List.of(PopulationUtils.createLeg(
+						(String) request.getPerson().getAttributes().getAttribute("routingMode")));
+				delegates.add(delegate);
+				return new PtRoutingModeWrapper(routingModeParams, delegate);
+			});
+		}
+		PtIntermodalRoutingModesRouter router = new PtIntermodalRoutingModesRouter(config, routingModuleProviders,
+				new ConcurrentRoutingExecutor(2));
+		Assertions.assertEquals(3, delegates.size(), "each routing mode needs its own delegate");
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("1"));
+		Facility from = FacilitiesUtils.wrapLinkAndCoord(Id.createLinkId("a"), new Coord(0, 0));
+		Facility to = FacilitiesUtils.wrapLinkAndCoord(Id.createLinkId("b"), new Coord(1000, 0));
+		Map<String, List<? extends PlanElement>> routingMode2Route = router.calcRoutes(
+				DefaultRoutingRequest.withoutAttributes(from, to, 8 * 3600., person));
+
+		Assertions.assertEquals(List.of("pt_w_drt_allowed", "pt_w_bike_allowed", "pt_w_walk_only"), List.copyOf(routingMode2Route.keySet()));
+		routingMode2Route.forEach((routingMode, route) -> Assertions.assertEquals(routingMode, ((Leg) route.get(0)).getMode()));
+		Assertions.assertNull(person.getAttributes().getAttribute("routingMode"));
+	}
+
+	@Test
+	public void testRoutingStatistics() {
+		PtIntermodalRoutingModeParameterSet routingModeParams = new PtIntermodalRoutingModeParameterSet();
+		routingModeParams.setRoutingMode("pt_w_drt_allowed");
+		routingModeParams.setDelegateMode(TransportMode.pt);
+
+		PtRoutingStatistics routingStatistics = new PtRoutingStatistics(null);
+		RoutingModule delegate = request -> {
+			// two access/egress candidates evaluated, no pt route found for the second request
+			PtRoutingStatistics.recordAccessEgressCandidate();
+			PtRoutingStatistics.recordAccessEgressCandidate();
+			return request.getDepartureTime() < 12 * 3600. ? List.of(PopulationUtils.createLeg(TransportMode.pt)) : null;
+		};
+		PtRoutingModeWrapper wrapper = new PtRoutingModeWrapper(routingModeParams, delegate, routingStatistics);
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("1"));
+		Facility from = FacilitiesUtils.wrapLinkAndCoord(Id.createLinkId("a"), new Coord(0, 0));
+		Facility to = FacilitiesUtils.wrapLinkAndCoord(Id.createLinkId("b"), new Coord(1000, 0));
+		wrapper.calcRoute(DefaultRoutingRequest.withoutAttributes(from, to, 8 * 3600., person));
+		wrapper.calcRoute(DefaultRoutingRequest.withoutAttributes(from, to, 23 * 3600., person));
+		// outside of a routing mode nothing is recorded
+		PtRoutingStatistics.recordAccessEgressCandidate();
+		// neither while statistics are suspended, e.g. during the trip router warm-up
+		PtRoutingStatistics.runWithoutStatistics(() -> wrapper.calcRoute(DefaultRoutingRequest.withoutAttributes(from, to, 8 * 3600., person)));
+
+		PtRoutingStatistics.RoutingModeStatistics statistics = routingStatistics.getRoutingModeStatistics("pt_w_drt_allowed");
+		Assertions.assertEquals(2, statistics.getCalls());
+		Assertions.assertEquals(1, statistics.getFailedRoutes());
+		Assertions.assertEquals(4, statistics.getAccessEgressCandidates());
+
+		PtRoutingStatistics.LatencyHistogram histogram = new PtRoutingStatistics.LatencyHistogram();
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value);
+		}
+		Assertions.assertEquals(1000, histogram.getMax_us());
+		Assertions.assertEquals(500.5, histogram.getMean_us(), 1e-9);
+		Assertions.assertEquals(500, histogram.getPercentile_us(0.5), 500 * 0.125);
+		Assertions.assertEquals(990, histogram.getPercentile_us(0.99), 990 * 0.125);
+	}
+
+	@Test
+	public void testPooledDelegateSharedBetweenRoutingModes() {
+		List<RoutingModule> delegates = new ArrayList<>();
+		PooledDelegateRoutingModules pooledDelegateRoutingModules = new PooledDelegateRoutingModules(Map.of(TransportMode.pt, () -> {
+			RoutingModule delegate = request -> List.of(PopulationUtils.createLeg(TransportMode.pt));
+			delegates.add(delegate);
+			return delegate;
+		}));
+
+		List<PtRoutingModeWrapper> wrappers = new ArrayList<>();
+		for (String routingMode : List.of("pt_w_drt_allowed", "pt_w_bike_allowed")) {
+			PtIntermodalRoutingModeParameterSet routingModeParams = new PtIntermodalRoutingModeParameterSet();
+			routingModeParams.setRoutingMode(routingMode);
+			routingModeParams.setDelegateMode(TransportMode.pt);
+			wrappers.add(new PtRoutingModeWrapper(routingModeParams, pooledDelegateRoutingModules.get(TransportMode.pt)));
+		}
+		Assertions.assertTrue(delegates.isEmpty(), "delegates should be created on demand");
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("1"));
+		Facility from = FacilitiesUtils.wrapLinkAndCoord(Id.createLinkId("a"), new Coord(0, 0));
+		Facility to = FacilitiesUtils.wrapLinkAndCoord(Id.createLinkId("b"), new Coord(1000, 0));
+		for (PtRoutingModeWrapper wrapper : wrappers) {
+			Assertions.assertEquals(1, wrapper.calcRoute(DefaultRoutingRequest.withoutAttributes(from, to, 8 * 3600., person)).size());
+		}
+		Assertions.assertEquals(1, delegates.size(), "sequential requests should reuse the pooled delegate");
+	}
+}
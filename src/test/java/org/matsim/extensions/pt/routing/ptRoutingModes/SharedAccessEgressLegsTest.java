@@ -0,0 +1,88 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.routing.ptRoutingModes;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.DefaultRoutingRequest;
+import org.matsim.core.router.RoutingModule;
+import org.matsim.core.router.RoutingRequest;
+import org.matsim.facilities.FacilitiesUtils;
+import org.matsim.facilities.Facility;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author vsp-gleich
+ */
+public class SharedAccessEgressLegsTest {
+
+	@Test
+	public void testLegsRoutedOncePerTrip() {
+		Config config = ConfigUtils.createConfig();
+		ConfigUtils.addOrGetModule(config, PtIntermodalRoutingModesConfigGroup.class).setSharedAccessEgressModesAsString("walk, bike");
+		SharedAccessEgressLegs sharedAccessEgressLegs = new SharedAccessEgressLegs(config);
+		Assertions.assertTrue(sharedAccessEgressLegs.isShared(TransportMode.walk));
+		Assertions.assertFalse(sharedAccessEgressLegs.isShared(TransportMode.drt));
+
+		AtomicInteger routingCalls = new AtomicInteger();
+		RoutingModule walkRouter = request -> {
+			routingCalls.incrementAndGet();
+			Leg leg = PopulationUtils.createLeg(TransportMode.walk);
+			leg.setTravelTime(300.);
+			return List.of(leg);
+		};
+		// every routing mode has its own stop finder and thus its own walk routing module
+		RoutingModule walkRouterRoutingMode1 = sharedAccessEgressLegs.wrap(TransportMode.walk, walkRouter);
+		RoutingModule walkRouterRoutingMode2 = sharedAccessEgressLegs.wrap(TransportMode.walk, walkRouter);
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("1"));
+		Facility from = FacilitiesUtils.wrapLinkAndCoord(Id.createLinkId("a"), new Coord(0, 0));
+		Facility stop = FacilitiesUtils.wrapLinkAndCoord(Id.createLinkId("stop"), new Coord(400, 0));
+		Facility otherStop = FacilitiesUtils.wrapLinkAndCoord(Id.createLinkId("otherStop"), new Coord(0, 400));
+		RoutingRequest request = DefaultRoutingRequest.withoutAttributes(from, stop, 8 * 3600., person);
+
+		List<? extends PlanElement> route1 = walkRouterRoutingMode1.calcRoute(request);
+		List<? extends PlanElement> route2 = walkRouterRoutingMode2.calcRoute(request);
+		Assertions.assertEquals(1, routingCalls.get());
+		Assertions.assertNotSame(route1.get(0), route2.get(0), "each routing mode needs its own copy");
+		((Leg) route1.get(0)).setTravelTime(0.);
+		Assertions.assertEquals(300., ((Leg) route2.get(0)).getTravelTime().seconds(), 0.);
+
+		walkRouterRoutingMode2.calcRoute(DefaultRoutingRequest.withoutAttributes(from, otherStop, 8 * 3600., person));
+		Assertions.assertEquals(2, routingCalls.get());
+
+		sharedAccessEgressLegs.notifyIterationStarts(null);
+		walkRouterRoutingMode1.calcRoute(request);
+		Assertions.assertEquals(3, routingCalls.get());
+		Assertions.assertEquals(Set.of("walk", "bike"), ConfigUtils.addOrGetModule(config, PtIntermodalRoutingModesConfigGroup.class).getSharedAccessEgressModes());
+	}
+}
@@ -0,0 +1,76 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.*;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author vsp-gleich
+ */
+public class TransitStopTaggerCliTest {
+
+	@RegisterExtension
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testStreamingTagging() {
+		TransitSchedule schedule = TransitStopTaggerTest.createSchedule();
+		schedule.getFacilities().get(Id.create("A", TransitStopFacility.class)).getAttributes().putAttribute("existing", "kept");
+		String inputFile = utils.getOutputDirectory() + "schedule.xml.gz";
+		String outputFile = utils.getOutputDirectory() + "schedule-tagged.xml.gz";
+		new TransitScheduleWriter(schedule).writeFile(inputFile);
+
+		List<TransitStopTaggerCli.StopTagRule> rules = TransitStopTaggerCli.parseRules(List.of(
+				"# comment",
+				"gtfsMode;S-Bahn;rail;true",
+				"lineNamePrefix;10;bus100;true",
+				"linesWithMinDepartures;5;transitLinesMin5Departures"));
+		new TransitStopTaggerCli(rules).run(inputFile, outputFile);
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new TransitScheduleReader(scenario).readFile(outputFile);
+		TransitSchedule taggedSchedule = scenario.getTransitSchedule();
+		Assertions.assertEquals(schedule.getTransitLines().keySet(), taggedSchedule.getTransitLines().keySet());
+
+		TransitStopFacility stopA = taggedSchedule.getFacilities().get(Id.create("A", TransitStopFacility.class));
+		TransitStopFacility stopC = taggedSchedule.getFacilities().get(Id.create("C", TransitStopFacility.class));
+		Assertions.assertEquals("kept", stopA.getAttributes().getAttribute("existing"));
+		Assertions.assertEquals("true", stopA.getAttributes().getAttribute("rail"));
+		Assertions.assertNull(stopA.getAttributes().getAttribute("bus100"));
+		Assertions.assertEquals("S1", stopA.getAttributes().getAttribute("transitLinesMin5Departures"));
+		Assertions.assertEquals(GtfsTransitMode.S_BAHN.bit(), stopA.getAttributes().getAttribute(TransitStopTagger.GTFS_TRANSIT_MODE_MASK));
+
+		Assertions.assertNull(stopC.getAttributes().getAttribute("rail"));
+		Assertions.assertEquals("true", stopC.getAttributes().getAttribute("bus100"));
+		Assertions.assertNull(stopC.getAttributes().getAttribute("transitLinesMin5Departures"));
+		Assertions.assertEquals(Set.of("100", "X"), Set.of(((String) stopC.getAttributes().getAttribute("transitLinesString")).split(",")));
+	}
+}
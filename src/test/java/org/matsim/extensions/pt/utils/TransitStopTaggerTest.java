@@ -0,0 +1,208 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.extensions.pt.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author vsp-gleich
+ */
+public class TransitStopTaggerTest {
+
+	@Test
+	public void testGtfsRouteTypeLookup() {
+		Assertions.assertEquals(GtfsTransitMode.TRAM, GtfsTransitMode.fromRouteType(0));
+		Assertions.assertEquals(GtfsTransitMode.RAIL, GtfsTransitMode.fromRouteType(106));
+		Assertions.assertEquals(GtfsTransitMode.S_BAHN, GtfsTransitMode.fromRouteType(109));
+		Assertions.assertEquals(GtfsTransitMode.COACH, GtfsTransitMode.fromRouteType(202));
+		Assertions.assertEquals(GtfsTransitMode.SUBWAY_METRO, GtfsTransitMode.fromRouteType(405));
+		Assertions.assertEquals(GtfsTransitMode.BUS, GtfsTransitMode.fromRouteType(715));
+		Assertions.assertEquals(GtfsTransitMode.TROLLEYBUS, GtfsTransitMode.fromRouteType(800));
+		Assertions.assertEquals(GtfsTransitMode.GONDOLA, GtfsTransitMode.fromRouteType(1307));
+		Assertions.assertEquals(GtfsTransitMode.TAXI, GtfsTransitMode.fromRouteType(1501));
+		Assertions.assertEquals(GtfsTransitMode.CABLE_CAR, GtfsTransitMode.fromRouteType(1701));
+		Assertions.assertEquals(GtfsTransitMode.MISCELLANEOUS, GtfsTransitMode.fromRouteType(1702));
+		Assertions.assertEquals(GtfsTransitMode.S_BAHN, GtfsTransitMode.fromRouteType(300));
+		Assertions.assertEquals(GtfsTransitMode.SUBWAY_METRO, GtfsTransitMode.fromRouteType(500));
+		Assertions.assertEquals(GtfsTransitMode.SUBWAY_METRO, GtfsTransitMode.fromRouteType(600));
+		Assertions.assertEquals(GtfsTransitMode.FERRY, GtfsTransitMode.fromRouteType(1012));
+		Assertions.assertEquals(GtfsTransitMode.AIR, GtfsTransitMode.fromRouteType(1107));
+		Assertions.assertEquals(GtfsTransitMode.MISCELLANEOUS, GtfsTransitMode.fromRouteType(1601));
+		// subtypes not listed in the HVT table fall back to the mode of their block
+		Assertions.assertEquals(GtfsTransitMode.RAIL, GtfsTransitMode.fromRouteType(118));
+
+		Assertions.assertEquals(GtfsTransitMode.UNKNOWN, GtfsTransitMode.fromRouteType(8));
+		Assertions.assertEquals(GtfsTransitMode.UNKNOWN, GtfsTransitMode.fromRouteType(1800));
+		Assertions.assertEquals(GtfsTransitMode.UNKNOWN, GtfsTransitMode.fromRouteType(-1));
+		Assertions.assertEquals(GtfsTransitMode.UNKNOWN, GtfsTransitMode.fromRouteType(99999));
+
+		Assertions.assertEquals(GtfsTransitMode.SUBWAY_METRO, GtfsTransitMode.fromLabel("Subway, Metro"));
+		Assertions.assertNull(GtfsTransitMode.fromLabel("Hovercraft"));
+	}
+
+	@Test
+	public void testTagLineAndModeServingStop() {
+		TransitSchedule schedule = createSchedule();
+
+		// unknown route types are counted, not thrown
+		TransitStopTagger.tagLineAndModeServingStop(schedule);
+
+		TransitStopFacility stopA = schedule.getFacilities().get(Id.create("A", TransitStopFacility.class));
+		TransitStopFacility stopB = schedule.getFacilities().get(Id.create("B", TransitStopFacility.class));
+		TransitStopFacility stopC = schedule.getFacilities().get(Id.create("C", TransitStopFacility.class));
+
+		int maskA = (Integer) stopA.getAttributes().getAttribute(TransitStopTagger.GTFS_TRANSIT_MODE_MASK);
+		Assertions.assertEquals(GtfsTransitMode.S_BAHN.bit(), maskA);
+		int maskB = (Integer) stopB.getAttributes().getAttribute(TransitStopTagger.GTFS_TRANSIT_MODE_MASK);
+		Assertions.assertEquals(GtfsTransitMode.S_BAHN.bit() | GtfsTransitMode.BUS.bit(), maskB);
+		int maskC = (Integer) stopC.getAttributes().getAttribute(TransitStopTagger.GTFS_TRANSIT_MODE_MASK);
+		Assertions.assertEquals(GtfsTransitMode.BUS.bit() | GtfsTransitMode.UNKNOWN.bit(), maskC);
+
+		TransitStopTagger.tagStopsServedByGtfsMode(schedule, "S-Bahn", "rail", "true");
+		Assertions.assertEquals("true", stopA.getAttributes().getAttribute("rail"));
+		Assertions.assertEquals("true", stopB.getAttributes().getAttribute("rail"));
+		Assertions.assertNull(stopC.getAttributes().getAttribute("rail"));
+	}
+
+	@Test
+	public void testUpdateLineAndModeServingStop() {
+		TransitSchedule schedule = createSchedule();
+		TransitStopTagger.tagLineAndModeServingStop(schedule);
+		TransitStopTagger.tagStopsServedByGtfsMode(schedule, "Bus", "bus", "true");
+
+		// remove bus line 100 and let S1 serve C instead
+		Id<TransitLine> busLineId = Id.create("100", TransitLine.class);
+		Id<TransitLine> sBahnLineId = Id.create("S1", TransitLine.class);
+		schedule.removeTransitLine(schedule.getTransitLines().get(busLineId));
+		schedule.removeTransitLine(schedule.getTransitLines().get(sBahnLineId));
+		schedule.addTransitLine(createLine(schedule, "S1", "109", "1", 6, "A", "B", "C"));
+
+		Set<TransitStopFacility> affectedStops = TransitStopTagger.updateLineAndModeServingStop(schedule, Set.of(busLineId, sBahnLineId));
+		Assertions.assertEquals(3, affectedStops.size());
+		TransitStopTagger.deleteTransitStopFacilityTags(affectedStops, Set.of("bus"));
+		TransitStopTagger.tagStopsServedByGtfsMode(affectedStops, "Bus", "bus", "true");
+
+		// compare to tagging the edited schedule from scratch
+		TransitSchedule expectedSchedule = createSchedule();
+		expectedSchedule.removeTransitLine(expectedSchedule.getTransitLines().get(busLineId));
+		expectedSchedule.removeTransitLine(expectedSchedule.getTransitLines().get(sBahnLineId));
+		expectedSchedule.addTransitLine(createLine(expectedSchedule, "S1", "109", "1", 6, "A", "B", "C"));
+		TransitStopTagger.tagLineAndModeServingStop(expectedSchedule);
+		TransitStopTagger.tagStopsServedByGtfsMode(expectedSchedule, "Bus", "bus", "true");
+
+		for (TransitStopFacility expectedStop : expectedSchedule.getFacilities().values()) {
+			TransitStopFacility stop = schedule.getFacilities().get(expectedStop.getId());
+			for (String attribute : List.of(TransitStopTagger.GTFS_TRANSIT_MODE_MASK, "gtfsAgencyIds", "transitLines", "transitLines2Deps", "bus")) {
+				Assertions.assertEquals(expectedStop.getAttributes().getAttribute(attribute), stop.getAttributes().getAttribute(attribute),
+						"wrong " + attribute + " at stop " + stop.getId());
+			}
+		}
+		Assertions.assertNull(schedule.getFacilities().get(Id.create("B", TransitStopFacility.class)).getAttributes().getAttribute("bus"));
+	}
+
+	@Test
+	public void testCompactTransitStopFacilityAttributes() {
+		TransitSchedule schedule = createSchedule();
+		TransitStopTagger.tagLineAndModeServingStop(schedule);
+
+		TransitStopTagger.AttributeCompactionResult result = TransitStopTagger.compactTransitStopFacilityAttributes(schedule,
+				Set.of("matsimTransitModes", "gtfsAgencyIds"));
+
+		// 4 of the 6 service tags removed at each of the 3 stops
+		Assertions.assertEquals(12, result.getRemovedAttributes());
+		// matsimTransitModes {pt} at B and C duplicate the value at A, the agency ids {1}, {1, 2}, {2} all differ
+		Assertions.assertEquals(2, result.getDeduplicatedValues());
+		Assertions.assertTrue(result.getEstimatedBytesSaved() > 0);
+
+		TransitStopFacility stopA = schedule.getFacilities().get(Id.create("A", TransitStopFacility.class));
+		TransitStopFacility stopB = schedule.getFacilities().get(Id.create("B", TransitStopFacility.class));
+		TransitStopFacility stopC = schedule.getFacilities().get(Id.create("C", TransitStopFacility.class));
+		Assertions.assertNull(stopA.getAttributes().getAttribute("transitLines2Deps"));
+		Assertions.assertEquals(2, stopA.getAttributes().size());
+
+		// all stops are served by mode pt only, so they share one instance
+		Assertions.assertEquals(Set.of("pt"), stopA.getAttributes().getAttribute("matsimTransitModes"));
+		Assertions.assertSame(stopA.getAttributes().getAttribute("matsimTransitModes"), stopB.getAttributes().getAttribute("matsimTransitModes"));
+		Assertions.assertSame(stopA.getAttributes().getAttribute("matsimTransitModes"), stopC.getAttributes().getAttribute("matsimTransitModes"));
+		Assertions.assertNotSame(stopA.getAttributes().getAttribute("gtfsAgencyIds"), stopB.getAttributes().getAttribute("gtfsAgencyIds"));
+
+		// compacting again finds nothing to remove and no stop holding a copy of a canonical value
+		TransitStopTagger.AttributeCompactionResult secondResult = TransitStopTagger.compactTransitStopFacilityAttributes(schedule,
+				Set.of("matsimTransitModes", "gtfsAgencyIds"));
+		Assertions.assertEquals(0, secondResult.getRemovedAttributes());
+		Assertions.assertEquals(0, secondResult.getDeduplicatedValues());
+		Assertions.assertEquals(0, secondResult.getEstimatedBytesSaved());
+	}
+
+	/**
+	 * Stops A - B - C, S-Bahn line S1 serving A and B, bus line 100 serving B and C, line X with an unknown route type
+	 * serving C.
+	 */
+	static TransitSchedule createSchedule() {
+		TransitScheduleFactory tsf = new TransitScheduleFactoryImpl();
+		TransitSchedule schedule = tsf.createTransitSchedule();
+		for (String stopId : List.of("A", "B", "C")) {
+			TransitStopFacility stop = tsf.createTransitStopFacility(Id.create(stopId, TransitStopFacility.class),
+					new Coord(1000. * schedule.getFacilities().size(), 0.), false);
+			stop.setLinkId(Id.createLinkId(stopId));
+			schedule.addStopFacility(stop);
+		}
+		schedule.addTransitLine(createLine(schedule, "S1", "109", "1", 6, "A", "B"));
+		schedule.addTransitLine(createLine(schedule, "100", "700", "2", 3, "B", "C"));
+		schedule.addTransitLine(createLine(schedule, "X", "4711", "2", 1, "C"));
+		return schedule;
+	}
+
+	static TransitLine createLine(TransitSchedule schedule, String lineId, String gtfsRouteType, String gtfsAgencyId,
+								  int numberOfDepartures, String... stopIds) {
+		TransitScheduleFactory tsf = schedule.getFactory();
+		TransitLine line = tsf.createTransitLine(Id.create(lineId, TransitLine.class));
+		line.getAttributes().putAttribute("gtfs_route_type", gtfsRouteType);
+		line.getAttributes().putAttribute("gtfs_agency_id", gtfsAgencyId);
+
+		List<TransitRouteStop> routeStops = new ArrayList<>();
+		List<Id<Link>> linkIds = new ArrayList<>();
+		for (int i = 0; i < stopIds.length; i++) {
+			TransitStopFacility stop = schedule.getFacilities().get(Id.create(stopIds[i], TransitStopFacility.class));
+			routeStops.add(tsf.createTransitRouteStopBuilder(stop).arrivalOffset(i * 120.).departureOffset(i * 120.).build());
+			linkIds.add(stop.getLinkId());
+		}
+		TransitRoute route = tsf.createTransitRoute(Id.create(lineId + "_0", TransitRoute.class),
+				RouteUtils.createLinkNetworkRouteImpl(linkIds.get(0), linkIds.subList(1, Math.max(1, linkIds.size() - 1)),
+						linkIds.get(linkIds.size() - 1)),
+				routeStops, "pt");
+		for (int i = 0; i < numberOfDepartures; i++) {
+			route.addDeparture(tsf.createDeparture(Id.create(lineId + "_" + i, Departure.class), 6 * 3600. + i * 600.));
+		}
+		line.addRoute(route);
+		return line;
+	}
+}